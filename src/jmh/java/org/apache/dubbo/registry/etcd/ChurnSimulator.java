@@ -0,0 +1,447 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.dubbo.registry.etcd;
+
+import org.apache.dubbo.common.URL;
+import org.apache.dubbo.common.utils.NamedThreadFactory;
+import org.apache.dubbo.registry.NotifyListener;
+import org.apache.dubbo.remoting.etcd.jetcd.EtcdStandInServer;
+import org.apache.dubbo.remoting.etcd.jetcd.JEtcdTransporter;
+import org.apache.dubbo.remoting.etcd.option.Constants;
+
+import java.io.Closeable;
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * drives simulated provider hosts and consumers through {@link EtcdRegistry} against an
+ * {@link EtcdStandInServer}, every host and consumer with a client and lease of its own.
+ * each phase reports register-to-notify latencies, notify throughput, heap usage, thread
+ * counts and whether every consumer converged to the registered providers.
+ * <p>
+ * options are given as key=value arguments:
+ * <ul>
+ * <li>scenario: steady, rolling-restart, lease-expiry, leader-loss or all, default all</li>
+ * <li>hosts, providersPerHost, services: the providers, default 100 hosts of 10 providers of 50 services</li>
+ * <li>consumers, subscriptions: consumers subscribing services each, default 100 of 10</li>
+ * <li>batch, interval: hosts restarted at once and pause in ms between batches, default 10 and 1000</li>
+ * <li>fraction: leases expired by lease-expiry, default 0.5</li>
+ * <li>outage: ms without leader in leader-loss, default 5000</li>
+ * <li>session: session timeout in ms, the ttl of leases, default 10000</li>
+ * <li>timeout: ms to wait for consumers to converge after each phase, default 60000</li>
+ * </ul>
+ */
+public class ChurnSimulator implements Closeable {
+
+    private static final String ID_KEY = "simulation.id";
+
+    private static final String SERVICE_PREFIX = "org.apache.dubbo.simulation.Service";
+
+    private final Map<String, String> options;
+
+    private final EtcdStandInServer server;
+
+    private final URL registryUrl;
+
+    private final File cacheDir;
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(32, new NamedThreadFactory("churn-simulator", true));
+
+    private final List<Host> hosts = new ArrayList<>();
+
+    private final List<Consumer> consumers = new ArrayList<>();
+
+    /**
+     * service -> ids of the providers registered and not unregistered.
+     */
+    private final ConcurrentMap<String, Set<String>> expected = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<String, Long> registeredAt = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<String, Long> unregisteredAt = new ConcurrentHashMap<>();
+
+    /**
+     * when the fault of the current phase was injected, 0 if none.
+     */
+    private volatile long disruptedAt;
+
+    private final LongAdder notifications = new LongAdder();
+
+    private final LatencyRecorder registerLatency = new LatencyRecorder("register-to-notify");
+
+    private final LatencyRecorder unregisterLatency = new LatencyRecorder("unregister-to-notify");
+
+    private final LatencyRecorder disruptionLatency = new LatencyRecorder("disruption-to-notify");
+
+    private final Random random = new Random(20190101L);
+
+    public ChurnSimulator(Map<String, String> options) throws Exception {
+        this.options = options;
+        this.server = new EtcdStandInServer().start();
+        this.registryUrl = server.toUrl()
+                .addParameter(Constants.ETCD3_CLIENT_SHARE_KEY, false)
+                .addParameter(Constants.SESSION_TIMEOUT_KEY, option("session", 10000))
+                .addParameter(Constants.CHECK_KEY, false);
+        this.cacheDir = Files.createTempDirectory("churn-simulator").toFile();
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int i = arg.indexOf('=');
+            if (i <= 0) {
+                throw new IllegalArgumentException("expect key=value, actual: " + arg);
+            }
+            options.put(arg.substring(0, i), arg.substring(i + 1));
+        }
+        try (ChurnSimulator simulator = new ChurnSimulator(options)) {
+            simulator.run(options.getOrDefault("scenario", "all"));
+        }
+        System.exit(0);
+    }
+
+    public void run(String scenario) throws Exception {
+        phase("bootstrap", this::bootstrap);
+        boolean all = "all".equals(scenario);
+        if (all || "steady".equals(scenario)) {
+            phase("steady", () -> Thread.sleep(option("interval", 1000) * 5L));
+        }
+        if (all || "rolling-restart".equals(scenario)) {
+            phase("rolling-restart", this::rollingRestart);
+        }
+        if (all || "lease-expiry".equals(scenario)) {
+            phase("lease-expiry", this::leaseExpiry);
+        }
+        if (all || "leader-loss".equals(scenario)) {
+            phase("leader-loss", this::leaderLoss);
+        }
+    }
+
+    private void bootstrap() throws Exception {
+        int providersPerHost = option("providersPerHost", 10);
+        int services = option("services", 50);
+        int subscriptions = Math.min(services, option("subscriptions", 10));
+
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int i = option("hosts", 100) - 1; i >= 0; i--) {
+            Host host = new Host(i, providersPerHost, services);
+            hosts.add(host);
+            tasks.add(() -> {
+                host.start();
+                return null;
+            });
+        }
+        for (int i = option("consumers", 100) - 1; i >= 0; i--) {
+            Consumer consumer = new Consumer(i);
+            consumers.add(consumer);
+            List<String> subscribed = new ArrayList<>();
+            for (int k = 0; k < subscriptions; k++) {
+                subscribed.add(SERVICE_PREFIX + ((i + k) % services));
+            }
+            tasks.add(() -> {
+                consumer.subscribe(subscribed);
+                return null;
+            });
+        }
+        invokeAll(tasks);
+    }
+
+    /**
+     * restart hosts batch by batch, every restart registers providers under new ids.
+     */
+    private void rollingRestart() throws Exception {
+        int batch = Math.max(1, option("batch", 10));
+        for (int from = 0; from < hosts.size(); from += batch) {
+            restart(hosts.subList(from, Math.min(hosts.size(), from + batch)));
+            Thread.sleep(option("interval", 1000));
+        }
+    }
+
+    /**
+     * expire leases at once as after a partition, hosts register again when they notice.
+     */
+    private void leaseExpiry() {
+        List<Long> leases = server.getLeases();
+        Collections.shuffle(leases, random);
+        int expired = (int) (leases.size() * Double.parseDouble(options.getOrDefault("fraction", "0.5")));
+        disruptedAt = System.nanoTime();
+        for (Long lease : leases.subList(0, expired)) {
+            server.expire(lease);
+        }
+    }
+
+    /**
+     * lose the leader, and restart a batch of hosts meanwhile.
+     */
+    private void leaderLoss() throws Exception {
+        int outage = option("outage", 5000);
+        disruptedAt = System.nanoTime();
+        server.loseLeader(outage, TimeUnit.MILLISECONDS);
+        restart(hosts.subList(0, Math.min(hosts.size(), Math.max(1, option("batch", 10)))));
+        Thread.sleep(outage);
+    }
+
+    private void restart(List<Host> batch) throws Exception {
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (Host host : batch) {
+            tasks.add(() -> {
+                host.stop();
+                host.start();
+                return null;
+            });
+        }
+        invokeAll(tasks);
+    }
+
+    private void invokeAll(List<Callable<Void>> tasks) throws Exception {
+        for (Future<Void> future : executor.invokeAll(tasks)) {
+            future.get();
+        }
+    }
+
+    private void phase(String name, Task task) throws Exception {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        threads.resetPeakThreadCount();
+        long notified = notifications.sum();
+        long start = System.nanoTime();
+
+        task.run();
+        long stale = awaitConvergence(option("timeout", 60000));
+
+        double seconds = (System.nanoTime() - start) / (double) TimeUnit.SECONDS.toNanos(1);
+        long count = notifications.sum() - notified;
+        System.out.println(String.format("== %s: %.1fs, %s", name, seconds
+                , stale == 0 ? "converged" : stale + " subscriptions not converged"));
+        System.out.println("  " + registerLatency.report());
+        System.out.println("  " + unregisterLatency.report());
+        System.out.println("  " + disruptionLatency.report());
+        System.out.println(String.format("  notifications=%d (%.0f/s) heap=%dMB threads=%d peak=%d", count, count / seconds
+                , memory.getHeapMemoryUsage().getUsed() >> 20, threads.getThreadCount(), threads.getPeakThreadCount()));
+        disruptedAt = 0;
+    }
+
+    /**
+     * @return subscriptions whose providers differ from the registered ones at timeout.
+     */
+    private long awaitConvergence(long timeout) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeout;
+        long stale;
+        while ((stale = stale()) > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(100);
+        }
+        return stale;
+    }
+
+    private long stale() {
+        long stale = 0;
+        for (Consumer consumer : consumers) {
+            for (Subscription subscription : consumer.subscriptions) {
+                if (!subscription.matches(expected.getOrDefault(subscription.service, Collections.emptySet()))) {
+                    stale++;
+                }
+            }
+        }
+        return stale;
+    }
+
+    private int option(String key, int defaultValue) {
+        String value = options.get(key);
+        return value == null ? defaultValue : Integer.parseInt(value);
+    }
+
+    private EtcdRegistry newRegistry(String name) {
+        URL url = registryUrl.addParameter(Constants.FILE_KEY, new File(cacheDir, name + ".cache").getAbsolutePath());
+        return new EtcdRegistry(url, new JEtcdTransporter());
+    }
+
+    @Override
+    public void close() {
+        for (Consumer consumer : consumers) {
+            consumer.registry.destroy();
+        }
+        for (Host host : hosts) {
+            host.stop();
+        }
+        executor.shutdownNow();
+        server.close();
+    }
+
+    private interface Task {
+        void run() throws Exception;
+    }
+
+    /**
+     * a provider process, registering providers of several services with one client.
+     */
+    private class Host {
+
+        final int index;
+
+        final int providers;
+
+        final int services;
+
+        int epoch;
+
+        EtcdRegistry registry;
+
+        final List<URL> registered = new ArrayList<>();
+
+        Host(int index, int providers, int services) {
+            this.index = index;
+            this.providers = providers;
+            this.services = services;
+        }
+
+        synchronized void start() {
+            epoch++;
+            registry = newRegistry("host-" + index);
+            for (int k = 0; k < providers; k++) {
+                String service = SERVICE_PREFIX + ((index * providers + k) % services);
+                String id = index + "-" + epoch + "-" + k;
+                URL url = URL.valueOf("dubbo://10.0." + (index >> 8 & 0xff) + "." + (index & 0xff) + ":" + (20880 + k)
+                        + "/" + service + "?interface=" + service + "&side=provider&methods=sayHello&" + ID_KEY + "=" + id);
+                registeredAt.put(id, System.nanoTime());
+                expected.computeIfAbsent(service, s -> ConcurrentHashMap.newKeySet()).add(id);
+                registry.register(url);
+                registered.add(url);
+            }
+        }
+
+        synchronized void stop() {
+            if (registry == null) {
+                return;
+            }
+            for (URL url : registered) {
+                String id = url.getParameter(ID_KEY);
+                expected.get(url.getServiceInterface()).remove(id);
+                unregisteredAt.put(id, System.nanoTime());
+            }
+            registered.clear();
+            registry.destroy();
+            registry = null;
+        }
+    }
+
+    private class Consumer {
+
+        final int index;
+
+        final List<Subscription> subscriptions = new ArrayList<>();
+
+        EtcdRegistry registry;
+
+        Consumer(int index) {
+            this.index = index;
+        }
+
+        void subscribe(List<String> services) {
+            registry = newRegistry("consumer-" + index);
+            for (String service : services) {
+                Subscription subscription = new Subscription(service);
+                subscriptions.add(subscription);
+                registry.subscribe(URL.valueOf("consumer://10.1." + (index >> 8 & 0xff) + "." + (index & 0xff) + "/" + service
+                        + "?interface=" + service + "&category=providers&check=false&side=consumer"), subscription);
+            }
+        }
+    }
+
+    /**
+     * the providers a consumer was notified of for a service.
+     */
+    private class Subscription implements NotifyListener {
+
+        final String service;
+
+        final Set<String> current = new HashSet<>();
+
+        /**
+         * ids notified before, seeing them again is recovery from a disruption.
+         */
+        final Set<String> seen = new HashSet<>();
+
+        Subscription(String service) {
+            this.service = service;
+        }
+
+        @Override
+        public synchronized void notify(List<URL> urls) {
+            long now = System.nanoTime();
+            notifications.increment();
+
+            Set<String> next = new HashSet<>();
+            for (URL url : urls) {
+                String id = url.getParameter(ID_KEY);
+                if (id != null) {
+                    next.add(id);
+                }
+            }
+            for (String id : next) {
+                if (!current.contains(id)) {
+                    if (seen.add(id)) {
+                        registerLatency.record(registeredAt.get(id), now);
+                    } else {
+                        recordDisruption(now);
+                    }
+                }
+            }
+            for (String id : current) {
+                if (!next.contains(id)) {
+                    Long at = unregisteredAt.get(id);
+                    if (at != null) {
+                        unregisterLatency.record(at, now);
+                    } else {
+                        recordDisruption(now);
+                    }
+                }
+            }
+            current.clear();
+            current.addAll(next);
+        }
+
+        private void recordDisruption(long now) {
+            long at = disruptedAt;
+            if (at != 0) {
+                disruptionLatency.record(at, now);
+            }
+        }
+
+        synchronized boolean matches(Set<String> registered) {
+            return current.equals(registered);
+        }
+    }
+}
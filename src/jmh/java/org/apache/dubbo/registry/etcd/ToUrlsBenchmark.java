@@ -0,0 +1,97 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.dubbo.registry.etcd;
+
+import org.apache.dubbo.common.URL;
+import org.apache.dubbo.remoting.etcd.jetcd.EtcdStandInServer;
+import org.apache.dubbo.remoting.etcd.jetcd.JEtcdTransporter;
+import org.apache.dubbo.remoting.etcd.jetcd.ProviderKeys;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * turning the children of a notification into urls for the consumer. churn
+ * children of every notification have not been seen before, so they are
+ * decoded instead of taken from the url cache.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ToUrlsBenchmark {
+
+    @Param({"10", "1000", "50000"})
+    int providers;
+
+    @Param({"0", "1", "100"})
+    int churn;
+
+    @Param({"256"})
+    int keyLength;
+
+    EtcdStandInServer server;
+
+    EtcdRegistry registry;
+
+    URL consumer;
+
+    List<String> children;
+
+    int next;
+
+    int unseen;
+
+    @Setup
+    public void setUp() throws Exception {
+        server = new EtcdStandInServer().start();
+        registry = new EtcdRegistry(server.toUrl(), new JEtcdTransporter());
+        consumer = URL.valueOf("consumer://10.0.0.1/" + ProviderKeys.SERVICE + "?interface=" + ProviderKeys.SERVICE);
+        children = ProviderKeys.children(providers, keyLength);
+        unseen = providers;
+    }
+
+    @TearDown
+    public void tearDown() {
+        registry.destroy();
+        server.close();
+    }
+
+    @Benchmark
+    public List<URL> toUrlsWithEmpty() {
+        for (int i = 0; i < churn && i < providers; i++) {
+            children.set(next, ProviderKeys.child(unseen++, keyLength));
+            next = next + 1 == providers ? 0 : next + 1;
+        }
+        return registry.toUrlsWithEmpty(consumer, ProviderKeys.PATH, children);
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.dubbo.remoting.etcd.jetcd;
+
+import com.google.protobuf.ByteString;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * matching the key of one watch event against the watched path, as
+ * {@code EtcdWatcher.find} and the children listing do. every eighth key
+ * is a grandchild, which must be rejected.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ChildPathMatcherBenchmark {
+
+    @Param({"10", "1000", "50000"})
+    int providers;
+
+    @Param({"128", "512"})
+    int keyLength;
+
+    ChildPathMatcher matcher;
+
+    ByteString[] keys;
+
+    int next;
+
+    @Setup
+    public void setUp() {
+        matcher = new ChildPathMatcher(ProviderKeys.PATH, 1);
+        List<String> children = ProviderKeys.children(providers, keyLength);
+        keys = new ByteString[providers];
+        for (int i = 0; i < providers; i++) {
+            String key = ProviderKeys.PATH + "/" + children.get(i);
+            keys[i] = ByteString.copyFromUtf8(i % 8 == 7 ? key + "/nested" : key);
+        }
+    }
+
+    @Benchmark
+    public String match() {
+        ByteString key = keys[next];
+        next = next + 1 == keys.length ? 0 : next + 1;
+        return matcher.match(key);
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.dubbo.remoting.etcd.jetcd;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * applying one watch response of churn events to the children of a
+ * watcher and handing the new list to the listener. providers leave in
+ * one response and come back in the next, walking through all of them.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ChildrenSetBenchmark {
+
+    @Param({"10", "1000", "50000"})
+    int providers;
+
+    @Param({"1", "100"})
+    int churn;
+
+    @Param({"256"})
+    int keyLength;
+
+    String[] children;
+
+    ChildrenSet current;
+
+    long revision;
+
+    int next;
+
+    boolean leaving = true;
+
+    @Setup
+    public void setUp() {
+        children = ProviderKeys.children(providers, keyLength).toArray(new String[0]);
+        revision = 1;
+        current = ChildrenSet.of(ProviderKeys.children(providers, keyLength), revision);
+    }
+
+    @Benchmark
+    public List<String> applyResponse() {
+        ChildrenSet updated = current;
+        int from = next;
+        for (int i = 0; i < churn; i++) {
+            String child = children[(from + i) % children.length];
+            updated = leaving ? updated.delete(child, ++revision) : updated.put(child, ++revision);
+        }
+        if (!leaving) {
+            next = (from + churn) % children.length;
+        }
+        leaving = !leaving;
+        current = updated;
+        return updated.asList();
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.dubbo.remoting.etcd.jetcd;
+
+import org.apache.dubbo.common.URL;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * listing the direct children of a providers path served by the stand-in
+ * server over loopback, including paging and filtering of grandchildren.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class GetChildrenBenchmark {
+
+    @Param({"10", "1000", "50000"})
+    int providers;
+
+    @Param({"128", "512"})
+    int keyLength;
+
+    EtcdStandInServer server;
+
+    JEtcdClientWrapper clientWrapper;
+
+    @Setup
+    public void setUp() throws Exception {
+        server = new EtcdStandInServer().start();
+        URL url = server.toUrl();
+        clientWrapper = new JEtcdClientWrapper(url);
+        clientWrapper.start();
+
+        List<CompletableFuture<Void>> created = new ArrayList<>();
+        List<String> children = ProviderKeys.children(providers, keyLength);
+        for (int i = 0; i < children.size(); i++) {
+            String path = ProviderKeys.PATH + "/" + children.get(i);
+            created.add(clientWrapper.createPersistentAsync(path));
+            if (i % 8 == 7) {
+                created.add(clientWrapper.createPersistentAsync(path + "/nested"));
+            }
+        }
+        CompletableFuture.allOf(created.toArray(new CompletableFuture[0])).get(5, TimeUnit.MINUTES);
+    }
+
+    @TearDown
+    public void tearDown() {
+        clientWrapper.doClose();
+        server.close();
+    }
+
+    @Benchmark
+    public List<String> getChildren() {
+        return clientWrapper.getChildren(ProviderKeys.PATH);
+    }
+}
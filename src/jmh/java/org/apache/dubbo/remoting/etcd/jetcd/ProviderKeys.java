@@ -0,0 +1,55 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.dubbo.remoting.etcd.jetcd;
+
+import org.apache.dubbo.common.URL;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * generates children the way providers register them: an encoded url
+ * per provider, padded to the requested length.
+ */
+public final class ProviderKeys {
+
+    public static final String SERVICE = "org.apache.dubbo.demo.DemoService";
+
+    public static final String PATH = "/dubbo/" + SERVICE + "/providers";
+
+    private ProviderKeys() {
+    }
+
+    public static String child(int index, int keyLength) {
+        String url = "dubbo://10." + (index >>> 16 & 0xff) + "." + (index >>> 8 & 0xff) + "." + (index & 0xff)
+                + ":20880/" + SERVICE + "?anyhost=true&application=demo-provider&dubbo=2.0.2"
+                + "&generic=false&interface=" + SERVICE + "&methods=sayHello&side=provider&pad=";
+        StringBuilder child = new StringBuilder(URL.encode(url));
+        while (child.length() < keyLength) {
+            child.append('x');
+        }
+        return child.toString();
+    }
+
+    public static List<String> children(int count, int keyLength) {
+        List<String> children = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            children.add(child(i, keyLength));
+        }
+        return children;
+    }
+}
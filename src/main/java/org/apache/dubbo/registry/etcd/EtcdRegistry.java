@@ -20,23 +20,38 @@ import org.apache.dubbo.common.URL;
 import org.apache.dubbo.common.logger.Logger;
 import org.apache.dubbo.common.logger.LoggerFactory;
 import org.apache.dubbo.common.utils.ConcurrentHashSet;
+import org.apache.dubbo.common.utils.ExecutorUtil;
+import org.apache.dubbo.common.utils.NamedThreadFactory;
 import org.apache.dubbo.common.utils.UrlUtils;
 import org.apache.dubbo.registry.NotifyListener;
 import org.apache.dubbo.registry.support.FailbackRegistry;
+import org.apache.dubbo.remoting.etcd.AsyncEtcdClient;
 import org.apache.dubbo.remoting.etcd.ChildListener;
 import org.apache.dubbo.remoting.etcd.EtcdClient;
 import org.apache.dubbo.remoting.etcd.EtcdTransporter;
+import org.apache.dubbo.remoting.etcd.IncrementalChildListener;
 import org.apache.dubbo.remoting.etcd.StateListener;
+import org.apache.dubbo.remoting.etcd.metrics.EtcdMetrics;
+import org.apache.dubbo.remoting.etcd.metrics.Operation;
 import org.apache.dubbo.remoting.etcd.option.Constants;
 import org.apache.dubbo.remoting.etcd.option.OptionUtil;
 import org.apache.dubbo.rpc.RpcException;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 
 /**
@@ -52,12 +67,18 @@ public class EtcdRegistry extends FailbackRegistry {
 
     private final static String DEFAULT_ROOT = "dubbo";
 
+    private final static Operation NOTIFY = EtcdMetrics.getInstance().operation("etcd3.registry.notify");
+
     private final String root;
 
+    private final boolean serviceIndex;
+
     private final Set<String> anyServices = new ConcurrentHashSet<String>();
 
     private final ConcurrentMap<URL, ConcurrentMap<NotifyListener, ChildListener>> etcdListeners = new ConcurrentHashMap<URL, ConcurrentMap<NotifyListener, ChildListener>>();
     private final EtcdClient etcdClient;
+    private final UrlCache urlCache;
+    private final ThreadPoolExecutor bootstrapExecutor;
     private long expirePeriod;
 
     public EtcdRegistry(URL url, EtcdTransporter etcdTransporter) {
@@ -70,6 +91,14 @@ public class EtcdRegistry extends FailbackRegistry {
             group = Constants.PATH_SEPARATOR + group;
         }
         this.root = group;
+        this.serviceIndex = url.getParameter(Constants.ETCD3_SERVICE_INDEX_KEY, false);
+        this.urlCache = new UrlCache(url.getParameter(Constants.ETCD3_URL_CACHE_SIZE_KEY, Constants.DEFAULT_ETCD3_URL_CACHE_SIZE));
+        int bootstrapThreads = Math.max(1, url.getParameter(Constants.ETCD3_BOOTSTRAP_THREADS_KEY, Constants.DEFAULT_ETCD3_BOOTSTRAP_THREADS));
+        this.bootstrapExecutor = new ThreadPoolExecutor(bootstrapThreads, bootstrapThreads
+                , Constants.DEFAULT_SESSION_TIMEOUT, TimeUnit.MILLISECONDS
+                , new LinkedBlockingQueue<Runnable>(), new NamedThreadFactory("etcd3-bootstrap", true));
+        this.bootstrapExecutor.allowCoreThreadTimeOut(true);
+        EtcdMetrics.getInstance().export(url);
         etcdClient = etcdTransporter.connect(url);
         etcdClient.addStateListener(new StateListener() {
             public void stateChanged(int state) {
@@ -100,6 +129,10 @@ public class EtcdRegistry extends FailbackRegistry {
     public void doRegister(URL url) {
         try {
             String path = toUrlPath(url);
+            if (serviceIndex) {
+                // created only if absent, so repeated registrations cause no index events.
+                etcdClient.create(toServiceIndexPath(url));
+            }
             if (url.getParameter(Constants.DYNAMIC_KEY, true)) {
                 etcdClient.createEphemeral(path);
                 return;
@@ -127,7 +160,7 @@ public class EtcdRegistry extends FailbackRegistry {
     public void doSubscribe(URL url, NotifyListener listener) {
         try {
             if (Constants.ANY_VALUE.equals(url.getServiceInterface())) {
-                String root = toRootPath();
+                String root = serviceIndex ? toIndexPath() : toRootPath();
 
                 /**
                  *  if we interesting all interfaces,
@@ -180,54 +213,85 @@ public class EtcdRegistry extends FailbackRegistry {
                  *  eg: /dubbo/interface, /dubbo/interface and so on.
                  */
                 List<String> services = etcdClient.addChildListener(root, interfaceListener);
+                List<URL> serviceUrls = new ArrayList<URL>(services.size());
                 for (String service : services) {
                     service = URL.decode(service);
                     anyServices.add(service);
-                    subscribe(url.setPath(service).addParameters(Constants.INTERFACE_KEY, service,
-                            Constants.CHECK_KEY, String.valueOf(false)), listener);
+                    serviceUrls.add(url.setPath(service).addParameters(Constants.INTERFACE_KEY, service,
+                            Constants.CHECK_KEY, String.valueOf(false)));
+                }
+                subscribeAll(serviceUrls, listener);
+            } else if (watchService(url)) {
+                String[] categoriesPath = toCategoriesPath(url);
+                ConcurrentMap<NotifyListener, ChildListener> listeners =
+                        Optional.ofNullable(etcdListeners.get(url))
+                                .orElseGet(() -> {
+                                    ConcurrentMap<NotifyListener, ChildListener> container, prev;
+                                    prev = etcdListeners.putIfAbsent(url,
+                                            container = new ConcurrentHashMap<NotifyListener, ChildListener>());
+                                    return prev != null ? prev : container;
+                                });
+
+                ChildListener childListener =
+                        Optional.ofNullable(listeners.get(listener))
+                                .orElseGet(() -> {
+                                    ChildListener watchListener, prev;
+                                    prev = listeners.putIfAbsent(listener, watchListener = new ServiceListener(url, listener, categoriesPath));
+                                    return prev != null ? prev : watchListener;
+                                });
+
+                /**
+                 *  one read and one watch of the service path cover all categories,
+                 *  eg: /dubbo/interface/providers, /dubbo/interface/consumers and so on.
+                 */
+                etcdClient.addCategoriesListener(toServicePath(url), childListener);
+                List<URL> urls = new ArrayList<URL>();
+                for (String path : categoriesPath) {
+                    urls.addAll(((ServiceListener) childListener).toUrls(path));
                 }
+                notify(url, listener, urls);
             } else {
                 List<URL> urls = new ArrayList<URL>();
-                for (String path : toCategoriesPath(url)) {
-
-                    /**
-                     *  if we interesting special categories (providers, consumers, routers and so on),
-                     *  we find current or create container for url, put or get only once.
-                     */
-                    ConcurrentMap<NotifyListener, ChildListener> listeners =
-                            Optional.ofNullable(etcdListeners.get(url))
-                                    .orElseGet(() -> {
-                                        ConcurrentMap<NotifyListener, ChildListener> container, prev;
-                                        prev = etcdListeners.putIfAbsent(url,
-                                                container = new ConcurrentHashMap<NotifyListener, ChildListener>());
-                                        return prev != null ? prev : container;
-                                    });
+                String[] categoriesPath = toCategoriesPath(url);
+                createAll(categoriesPath);
 
-                    /**
-                     *  if we have no category watcher listener,
-                     *  we find current or create listener for current category, put or get only once.
-                     */
-                    ChildListener childListener =
-                            Optional.ofNullable(listeners.get(listener))
-                                    .orElseGet(() -> {
-                                        ChildListener watchListener, prev;
-                                        prev = listeners.putIfAbsent(listener, watchListener = new ChildListener() {
-                                            public void childChanged(String parentPath, List<String> currentChildren) {
-                                                EtcdRegistry.this.notify(url, listener,
-                                                        toUrlsWithEmpty(url, parentPath, currentChildren));
-                                            }
-                                        });
-                                        return prev != null ? prev : watchListener;
-                                    });
+                /**
+                 *  if we interesting special categories (providers, consumers, routers and so on),
+                 *  we find current or create container for url, put or get only once.
+                 */
+                ConcurrentMap<NotifyListener, ChildListener> listeners =
+                        Optional.ofNullable(etcdListeners.get(url))
+                                .orElseGet(() -> {
+                                    ConcurrentMap<NotifyListener, ChildListener> container, prev;
+                                    prev = etcdListeners.putIfAbsent(url,
+                                            container = new ConcurrentHashMap<NotifyListener, ChildListener>());
+                                    return prev != null ? prev : container;
+                                });
+
+                /**
+                 *  if we have no category watcher listener,
+                 *  we find current or create listener for current category, put or get only once.
+                 */
+                ChildListener childListener =
+                        Optional.ofNullable(listeners.get(listener))
+                                .orElseGet(() -> {
+                                    ChildListener watchListener, prev;
+                                    prev = listeners.putIfAbsent(listener, watchListener = new CategoryListener(url, listener));
+                                    return prev != null ? prev : watchListener;
+                                });
 
-                    etcdClient.create(path);
-                    /**
-                     *  first time, we want pull already category and then watching direct children,
-                     *  eg: /dubbo/interface/providers, /dubbo/interface/consumers and so on.
-                     */
-                    List<String> children = etcdClient.addChildListener(path, childListener);
-                    if (children != null) {
-                        final String watchPath = path;
+                /**
+                 *  first time, we want pull already category and then watching direct children,
+                 *  eg: /dubbo/interface/providers, /dubbo/interface/consumers and so on.
+                 */
+                List<List<String>> childrenOfPaths = addAllChildListener(categoriesPath, childListener);
+                for (int i = 0; i < categoriesPath.length; i++) {
+                    String path = categoriesPath[i];
+                    List<String> children = childrenOfPaths.get(i);
+                    if (childListener instanceof CategoryListener
+                            && ((CategoryListener) childListener).isTracking(path)) {
+                        urls.addAll(((CategoryListener) childListener).toUrls(path));
+                    } else if (children != null) {
                         urls.addAll(toUrlsWithEmpty(url, path, children));
                     }
                 }
@@ -246,10 +310,16 @@ public class EtcdRegistry extends FailbackRegistry {
         ConcurrentMap<NotifyListener, ChildListener> listeners = etcdListeners.get(url);
         if (listeners != null) {
             ChildListener etcdListener = listeners.get(listener);
-            if (etcdListener != null) {
+            if (etcdListener instanceof ServiceListener) {
+                etcdClient.removeCategoriesListener(toServicePath(url), etcdListener);
+                ((ServiceListener) etcdListener).clear();
+            } else if (etcdListener != null) {
                 // maybe url has many subscribe path
                 for (String path : toUnsubscribedPath(url)) {
                     etcdClient.removeChildListener(path, etcdListener);
+                    if (etcdListener instanceof CategoryListener) {
+                        ((CategoryListener) etcdListener).clear(path);
+                    }
                 }
             }
         }
@@ -263,6 +333,7 @@ public class EtcdRegistry extends FailbackRegistry {
     @Override
     public void destroy() {
         super.destroy();
+        ExecutorUtil.shutdownNow(bootstrapExecutor, 100);
         try {
             etcdClient.close();
         } catch (Exception e) {
@@ -270,6 +341,13 @@ public class EtcdRegistry extends FailbackRegistry {
         }
     }
 
+    @Override
+    protected void notify(URL url, NotifyListener listener, List<URL> urls) {
+        long start = System.nanoTime();
+        super.notify(url, listener, urls);
+        NOTIFY.record(url.getServiceKey(), urls == null ? 0 : urls.size(), 0, start);
+    }
+
     protected String toRootDir() {
         if (root.startsWith(Constants.PATH_SEPARATOR)) {
             return root;
@@ -281,6 +359,17 @@ public class EtcdRegistry extends FailbackRegistry {
         return root;
     }
 
+    /**
+     * services are the direct children of index path, eg: /.index/dubbo/interface.
+     */
+    protected String toIndexPath() {
+        return Constants.ETCD3_SERVICE_INDEX_ROOT + toRootDir();
+    }
+
+    protected String toServiceIndexPath(URL url) {
+        return toIndexPath() + Constants.PATH_SEPARATOR + URL.encode(url.getServiceInterface());
+    }
+
     protected String toServicePath(URL url) {
         String name = url.getServiceInterface();
         if (Constants.ANY_VALUE.equals(name)) {
@@ -289,6 +378,79 @@ public class EtcdRegistry extends FailbackRegistry {
         return toRootDir() + Constants.PATH_SEPARATOR + URL.encode(name);
     }
 
+    /**
+     * subscribing several categories, children of other categories below
+     * the service path are received as well, so it's enabled on demand.
+     */
+    private boolean watchService(URL url) {
+        if (Constants.ANY_VALUE.equals(url.getParameter(Constants.CATEGORY_KEY))) {
+            return true;
+        }
+        return getUrl().getParameter(Constants.ETCD3_SERVICE_WATCH_KEY, false)
+                && url.getParameter(Constants.CATEGORY_KEY, new String[]{Constants.DEFAULT_CATEGORY}).length > 1;
+    }
+
+    /**
+     * create category paths at once, rather than waiting for them one by one.
+     */
+    private void createAll(String[] paths) throws Exception {
+        if (!(etcdClient instanceof AsyncEtcdClient)) {
+            for (String path : paths) {
+                etcdClient.create(path);
+            }
+            return;
+        }
+        AsyncEtcdClient asyncClient = (AsyncEtcdClient) etcdClient;
+        CompletableFuture<?>[] creating = new CompletableFuture<?>[paths.length];
+        for (int i = 0; i < paths.length; i++) {
+            creating[i] = asyncClient.createAsync(paths[i]);
+        }
+        CompletableFuture.allOf(creating).get();
+    }
+
+    /**
+     * subscribe services in parallel, so their listings are read by few txns and
+     * their watches are started together, rather than one service after another.
+     */
+    private void subscribeAll(List<URL> urls, NotifyListener listener) throws Exception {
+        if (urls.size() <= 1) {
+            for (URL url : urls) {
+                subscribe(url, listener);
+            }
+            return;
+        }
+        List<Future<?>> subscribing = new ArrayList<Future<?>>(urls.size());
+        for (URL url : urls) {
+            subscribing.add(bootstrapExecutor.submit(() -> subscribe(url, listener)));
+        }
+        for (Future<?> future : subscribing) {
+            future.get();
+        }
+    }
+
+    /**
+     * list and watch category paths at once, listings submitted together are read by few txns.
+     */
+    private List<List<String>> addAllChildListener(String[] paths, ChildListener childListener) throws Exception {
+        List<List<String>> childrenOfPaths = new ArrayList<>(paths.length);
+        if (!(etcdClient instanceof AsyncEtcdClient)) {
+            for (String path : paths) {
+                childrenOfPaths.add(etcdClient.addChildListener(path, childListener));
+            }
+            return childrenOfPaths;
+        }
+        AsyncEtcdClient asyncClient = (AsyncEtcdClient) etcdClient;
+        List<CompletableFuture<List<String>>> watching = new ArrayList<>(paths.length);
+        for (String path : paths) {
+            watching.add(asyncClient.addChildListenerAsync(path, childListener));
+        }
+        CompletableFuture.allOf(watching.toArray(new CompletableFuture<?>[0])).get();
+        for (CompletableFuture<List<String>> children : watching) {
+            childrenOfPaths.add(children.get());
+        }
+        return childrenOfPaths;
+    }
+
     protected String[] toCategoriesPath(URL url) {
         String[] categroies;
         if (Constants.ANY_VALUE.equals(url.getParameter(Constants.CATEGORY_KEY))) {
@@ -319,7 +481,7 @@ public class EtcdRegistry extends FailbackRegistry {
             if (!group.startsWith(Constants.PATH_SEPARATOR)) {
                 group = Constants.PATH_SEPARATOR + group;
             }
-            categories.add(group);
+            categories.add(serviceIndex ? Constants.ETCD3_SERVICE_INDEX_ROOT + group : group);
             return categories;
         } else {
             for (String path : toCategoriesPath(url)) {
@@ -333,21 +495,33 @@ public class EtcdRegistry extends FailbackRegistry {
         List<URL> urls = new ArrayList<URL>();
         if (providers != null && providers.size() > 0) {
             for (String provider : providers) {
-                provider = URL.decode(provider);
-                if (provider.contains(Constants.HTTP_SUBFIX_KEY)) {
-                    URL url = URL.valueOf(provider);
-                    if (UrlUtils.isMatch(consumer, url)) {
-                        urls.add(url);
-                    }
+                URL url = toUrl(consumer, provider);
+                if (url != null) {
+                    urls.add(url);
                 }
             }
         }
         return urls;
     }
 
+    /**
+     * parse the encoded child, null if it is not an url matching the consumer.
+     */
+    protected URL toUrl(URL consumer, String provider) {
+        return match(consumer, urlCache.get(provider));
+    }
+
+    private static URL match(URL consumer, URL url) {
+        return url != null && UrlUtils.isMatch(consumer, url) ? url : null;
+    }
+
     protected List<URL> toUrlsWithEmpty(URL consumer, String path, List<String> providers) {
-        List<URL> urls = toUrlsWithoutEmpty(consumer, providers);
-        if (urls == null || urls.isEmpty()) {
+        return toUrlsWithEmpty(consumer, path, toUrlsWithoutEmpty(consumer, providers));
+    }
+
+    protected List<URL> toUrlsWithEmpty(URL consumer, String path, Collection<URL> matched) {
+        List<URL> urls = new ArrayList<URL>(matched);
+        if (urls.isEmpty()) {
             int i = path.lastIndexOf('/');
             String category = i < 0 ? path : path.substring(i + 1);
             URL empty = consumer.setProtocol(Constants.EMPTY_PROTOCOL).addParameter(Constants.CATEGORY_KEY, category);
@@ -355,4 +529,184 @@ public class EtcdRegistry extends FailbackRegistry {
         }
         return urls;
     }
+
+    /**
+     * keeps parsed urls of every category path of one subscription,
+     * only the changed children are parsed on notification.
+     */
+    private class CategoryListener implements IncrementalChildListener {
+
+        private final URL url;
+
+        private final NotifyListener listener;
+
+        /**
+         * category path -> encoded child -> matched url, children not
+         * matching the consumer are kept too, so they are matched only once.
+         */
+        private final ConcurrentMap<String, Map<String, Child>> categories = new ConcurrentHashMap<>();
+
+        CategoryListener(URL url, NotifyListener listener) {
+            this.url = url;
+            this.listener = listener;
+        }
+
+        /**
+         * the children found when subscribing, doSubscribe notifies them with other categories.
+         */
+        @Override
+        public void childChanged(String path, List<String> children) {
+            Map<String, Child> current = new HashMap<>();
+            for (String child : children) {
+                current.put(child, acquire(child));
+            }
+            release(categories.put(path, current));
+        }
+
+        @Override
+        public void childChanged(String path, List<String> added, List<String> removed, long revision) {
+            Map<String, Child> current = categories.computeIfAbsent(path, k -> new HashMap<>());
+            synchronized (current) {
+                for (String child : removed) {
+                    release(child, current.remove(child));
+                }
+                for (String child : added) {
+                    if (!current.containsKey(child)) {
+                        current.put(child, acquire(child));
+                    }
+                }
+            }
+            EtcdRegistry.this.notify(url, listener, toUrls(path));
+        }
+
+        boolean isTracking(String path) {
+            return categories.containsKey(path);
+        }
+
+        /**
+         * path is not watched any more, release its children.
+         */
+        void clear(String path) {
+            release(categories.remove(path));
+        }
+
+        private void release(Map<String, Child> children) {
+            if (children != null) {
+                synchronized (children) {
+                    for (Map.Entry<String, Child> entry : children.entrySet()) {
+                        release(entry.getKey(), entry.getValue());
+                    }
+                }
+            }
+        }
+
+        private Child acquire(String child) {
+            UrlCache.Entry entry = urlCache.acquire(child);
+            return new Child(match(url, entry.getUrl()), entry.isRetained());
+        }
+
+        private void release(String child, Child released) {
+            if (released != null && released.retained) {
+                urlCache.release(child);
+            }
+        }
+
+        List<URL> toUrls(String path) {
+            List<URL> urls = new ArrayList<URL>();
+            Map<String, Child> current = categories.get(path);
+            if (current != null) {
+                synchronized (current) {
+                    for (Child child : current.values()) {
+                        if (child.matched != null) {
+                            urls.add(child.matched);
+                        }
+                    }
+                }
+            }
+            return toUrlsWithEmpty(url, path, urls);
+        }
+    }
+
+    /**
+     * the url of a child matching the consumer, null if not matched, and whether
+     * a reference of the url cache is held for the child.
+     */
+    private static class Child {
+
+        final URL matched;
+
+        final boolean retained;
+
+        Child(URL matched, boolean retained) {
+            this.matched = matched;
+            this.retained = retained;
+        }
+    }
+
+    /**
+     * routes the children of all categories below a service path to the
+     * category listener, children of unsubscribed categories are dropped.
+     */
+    private class ServiceListener implements IncrementalChildListener {
+
+        private final CategoryListener categoryListener;
+
+        /**
+         * subscribed category -> category path
+         */
+        private final Map<String, String> categoriesPath = new HashMap<>();
+
+        ServiceListener(URL url, NotifyListener listener, String[] paths) {
+            this.categoryListener = new CategoryListener(url, listener);
+            for (String path : paths) {
+                categoriesPath.put(path.substring(path.lastIndexOf('/') + 1), path);
+            }
+        }
+
+        @Override
+        public void childChanged(String servicePath, List<String> children) {
+            Map<String, List<String>> grouped = group(children);
+            for (String path : categoriesPath.values()) {
+                categoryListener.childChanged(path, grouped.getOrDefault(path, Collections.emptyList()));
+            }
+        }
+
+        @Override
+        public void childChanged(String servicePath, List<String> added, List<String> removed, long revision) {
+            Map<String, List<String>> addedGrouped = group(added);
+            Map<String, List<String>> removedGrouped = group(removed);
+            for (String path : categoriesPath.values()) {
+                List<String> categoryAdded = addedGrouped.getOrDefault(path, Collections.emptyList());
+                List<String> categoryRemoved = removedGrouped.getOrDefault(path, Collections.emptyList());
+                if (!categoryAdded.isEmpty() || !categoryRemoved.isEmpty()) {
+                    categoryListener.childChanged(path, categoryAdded, categoryRemoved, revision);
+                }
+            }
+        }
+
+        /**
+         * category/child grouped by the category path.
+         */
+        private Map<String, List<String>> group(List<String> children) {
+            Map<String, List<String>> grouped = new HashMap<>();
+            for (String child : children) {
+                int i = child.indexOf(Constants.PATH_SEPARATOR);
+                String path = i > 0 ? categoriesPath.get(child.substring(0, i)) : null;
+                if (path != null) {
+                    grouped.computeIfAbsent(path, k -> new ArrayList<>()).add(child.substring(i + 1));
+                }
+            }
+            return grouped;
+        }
+
+        List<URL> toUrls(String path) {
+            return categoryListener.toUrls(path);
+        }
+
+        void clear() {
+            for (String path : categoriesPath.values()) {
+                categoryListener.clear(path);
+            }
+        }
+    }
 }
@@ -0,0 +1,124 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.dubbo.registry.etcd;
+
+import org.apache.dubbo.common.URL;
+import org.apache.dubbo.remoting.etcd.option.Constants;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * parsed urls keyed by encoded child, shared by all subscriptions of one registry.
+ * <p>
+ * every watched path containing the child holds a reference, the entry is
+ * evicted once the child disappears from all of them. at most capacity
+ * entries are kept, children beyond it are parsed without caching.
+ */
+class UrlCache {
+
+    private final int capacity;
+
+    private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<>();
+
+    UrlCache(int capacity) {
+        this.capacity = capacity;
+    }
+
+    /**
+     * parse the child and hold a reference to it if it could be cached, only
+     * a held reference must be released.
+     *
+     * @return the entry of child, its url is null if child is not an url
+     */
+    Entry acquire(String child) {
+        Entry entry = entries.computeIfPresent(child, (key, current) -> current.retain());
+        if (entry != null) {
+            return entry;
+        }
+
+        URL url = parse(child);
+        if (entries.size() >= capacity) {
+            return new Entry(url, false);
+        }
+        return entries.compute(child, (key, current) -> (current != null ? current : new Entry(url, true)).retain());
+    }
+
+    /**
+     * drop a reference acquired before, evicted if no path contains the child any more.
+     */
+    void release(String child) {
+        entries.computeIfPresent(child, (key, current) -> current.release() > 0 ? current : null);
+    }
+
+    /**
+     * parse the child, cached url is used if present but no reference is held.
+     */
+    URL get(String child) {
+        Entry entry = entries.get(child);
+        return entry != null ? entry.url : parse(child);
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    private static URL parse(String child) {
+        String decoded = URL.decode(child);
+        if (decoded.contains(Constants.HTTP_SUBFIX_KEY)) {
+            return URL.valueOf(decoded);
+        }
+        return null;
+    }
+
+    /**
+     * references are only changed inside compute of the map, no other synchronization needed.
+     */
+    static class Entry {
+
+        private final URL url;
+
+        private final boolean retained;
+
+        private int references;
+
+        Entry(URL url, boolean retained) {
+            this.url = url;
+            this.retained = retained;
+        }
+
+        URL getUrl() {
+            return url;
+        }
+
+        /**
+         * whether a reference is held by the acquire, false if the cache was full.
+         */
+        boolean isRetained() {
+            return retained;
+        }
+
+        private Entry retain() {
+            references++;
+            return this;
+        }
+
+        private int release() {
+            return --references;
+        }
+    }
+}
@@ -39,6 +39,6 @@ public abstract class AbstractRetryPolicy implements RetryPolicy {
         return false;
     }
 
-    protected abstract long getSleepTime(int retried, long elapsed);
+    public abstract long getSleepTime(int retried, long elapsed);
 
 }
@@ -0,0 +1,89 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.dubbo.remoting.etcd;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * non-blocking counterpart of {@link EtcdClient}, the returned future is
+ * completed by the client once the request is acknowledged by etcd.
+ */
+public interface AsyncEtcdClient {
+
+    /**
+     * save the specified path to the etcd registry.
+     *
+     * @param path the path to be saved
+     * @return future completed when the path is saved.
+     */
+    CompletableFuture<Void> createAsync(String path);
+
+    /**
+     * save the specified path to the etcd registry.
+     * if node disconnect from etcd, it will be deleted
+     * automatically by etcd when sessian timeout.
+     *
+     * @param path the path to be saved
+     * @return future of the lease of current path.
+     */
+    CompletableFuture<Long> createEphemeralAsync(String path);
+
+    /**
+     * remove the specified  from etcd registry.
+     *
+     * @param path the path to be removed
+     * @return future completed when the path is removed.
+     */
+    CompletableFuture<Void> deleteAsync(String path);
+
+    /**
+     * find direct children directory, excluding path self.
+     *
+     * @param path the path to be found direct children.
+     * @return future of direct children directory, contains zero element
+     * list if children directory not exists.
+     */
+    CompletableFuture<List<String>> getChildrenAsync(String path);
+
+    /**
+     * register children listener for specified path.
+     *
+     * @param path     the path to be watched when children is added, delete or update.
+     * @param listener when children is changed , listener will be trigged.
+     * @return future of direct children directory, completed when watching started,
+     * see {@link EtcdClient#addChildListener(String, ChildListener)}.
+     */
+    CompletableFuture<List<String>> addChildListenerAsync(String path, ChildListener listener);
+
+    /***
+     * create new lease from specified second.
+     *
+     * @param second lease time (support second only).
+     * @return future of lease id from etcd
+     */
+    CompletableFuture<Long> createLeaseAsync(long second);
+
+    /**
+     * revoke specified lease, any associated path will removed automatically.
+     *
+     * @param lease to be removed lease
+     * @return future completed when the lease is revoked.
+     */
+    CompletableFuture<Void> revokeLeaseAsync(long lease);
+
+}
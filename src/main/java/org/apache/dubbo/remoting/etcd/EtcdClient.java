@@ -70,6 +70,26 @@ public interface EtcdClient {
      */
     List<String> addChildListener(String path, ChildListener listener);
 
+    /**
+     * register one listener for all categories of the service, one watch and one
+     * read cover them all. children are relative to the service path and prefixed
+     * with their category, eg: providers/dubbo%3A%2F%2F...
+     *
+     * @param servicePath the service path, eg: /dubbo/interface.
+     * @param listener    when any category child is changed, listener will be trigged.
+     * @return children of all categories, contains zero element
+     * list if service directory not exists.
+     */
+    List<String> addCategoriesListener(String servicePath, ChildListener listener);
+
+    /**
+     * unregister the listener of all categories for specified service path.
+     *
+     * @param servicePath the service path to be unwatched.
+     * @param listener    the listener registered by addCategoriesListener.
+     */
+    void removeCategoriesListener(String servicePath, ChildListener listener);
+
     /**
      * find watcher of the children listener for specified path.
      *
@@ -0,0 +1,40 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.dubbo.remoting.etcd;
+
+import java.util.List;
+
+/**
+ * children listener notified with the changed children only.
+ * <p>
+ * the children found when the listener is added are delivered by
+ * {@link #childChanged(String, List)} before any change, so the listener
+ * can keep its own copy in sync with later changes.
+ */
+public interface IncrementalChildListener extends ChildListener {
+
+    /**
+     * called when children of the path were added or removed.
+     *
+     * @param path     the watched path.
+     * @param added    children added since last notification.
+     * @param removed  children removed since last notification.
+     * @param revision the etcd revision of the latest change.
+     */
+    void childChanged(String path, List<String> added, List<String> removed, long revision);
+
+}
@@ -28,4 +28,13 @@ public interface RetryPolicy {
      */
     public boolean shouldRetry(int retried, long elapsed, boolean sleep);
 
+    /**
+     * the time to wait before the next retry.
+     *
+     * @param retried the number of times retried so far
+     * @param elapsed the elapsed time in millisecond since the operation was attempted
+     * @return sleep time in millisecond
+     */
+    public long getSleepTime(int retried, long elapsed);
+
 }
@@ -0,0 +1,75 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.dubbo.remoting.etcd.jetcd;
+
+import org.apache.dubbo.remoting.etcd.option.Constants;
+
+import com.google.protobuf.ByteString;
+
+/**
+ * matches keys below a path on their bytes, without decoding keys that do not match.
+ * <p>
+ * the separator is a single byte in utf-8 and never part of a multi-byte sequence,
+ * so it is safe to look for it byte by byte.
+ */
+public class ChildPathMatcher {
+
+    private static final byte SEPARATOR = (byte) Constants.PATH_SEPARATOR.charAt(0);
+
+    private final ByteString prefix;
+
+    private final int depth;
+
+    /**
+     * @param path  the parent path, without trailing separator.
+     * @param depth 1 matches direct children, 2 grandchildren and so on.
+     */
+    public ChildPathMatcher(String path, int depth) {
+        this.prefix = ByteString.copyFromUtf8(path + Constants.PATH_SEPARATOR);
+        this.depth = depth;
+    }
+
+    /**
+     * the encoded path with trailing separator, all matching keys start with it.
+     */
+    public ByteString getPrefix() {
+        return prefix;
+    }
+
+    /**
+     * @return the key relative to path if it's a descendant at depth, otherwise null,
+     * keys with an empty segment (eg. a trailing separator) never match.
+     */
+    public String match(ByteString key) {
+        int from = prefix.size();
+        int size = key.size();
+        if (size <= from || !key.startsWith(prefix)) {
+            return null;
+        }
+        int separators = 0;
+        int segment = from;
+        for (int i = from; i < size; i++) {
+            if (key.byteAt(i) == SEPARATOR) {
+                if (i == segment || ++separators >= depth) {
+                    return null;
+                }
+                segment = i + 1;
+            }
+        }
+        return separators == depth - 1 && segment < size ? key.substring(from).toStringUtf8() : null;
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.dubbo.remoting.etcd.jetcd;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * net changes of children, adding a child cancels a pending removal
+ * of the same child and vice versa.
+ */
+public class ChildrenDelta {
+
+    private final Set<String> added = new LinkedHashSet<>();
+
+    private final Set<String> removed = new LinkedHashSet<>();
+
+    private long revision;
+
+    /**
+     * when the earliest of the merged changes happened, changes are merged into the earlier one.
+     */
+    private final long createdNanos = System.nanoTime();
+
+    /**
+     * child was added, must be called only if it really changed.
+     */
+    public void add(String child) {
+        if (!removed.remove(child)) {
+            added.add(child);
+        }
+    }
+
+    /**
+     * child was removed, must be called only if it really changed.
+     */
+    public void remove(String child) {
+        if (!added.remove(child)) {
+            removed.add(child);
+        }
+    }
+
+    /**
+     * apply the later changes on top of this one.
+     */
+    public void merge(ChildrenDelta later) {
+        for (String child : later.removed) {
+            remove(child);
+        }
+        for (String child : later.added) {
+            add(child);
+        }
+        updateRevision(later.revision);
+    }
+
+    public void updateRevision(long revision) {
+        if (revision > this.revision) {
+            this.revision = revision;
+        }
+    }
+
+    public boolean isEmpty() {
+        return added.isEmpty() && removed.isEmpty();
+    }
+
+    public List<String> getAdded() {
+        return new ArrayList<>(added);
+    }
+
+    public List<String> getRemoved() {
+        return new ArrayList<>(removed);
+    }
+
+    public long getRevision() {
+        return revision;
+    }
+
+    public long getCreatedNanos() {
+        return createdNanos;
+    }
+}
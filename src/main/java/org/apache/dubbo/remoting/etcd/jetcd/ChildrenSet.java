@@ -0,0 +1,388 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.dubbo.remoting.etcd.jetcd;
+
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * immutable set of children, a hash array mapped trie sharing unchanged nodes between versions.
+ * <p>
+ * adding or removing a child copies only the nodes on its path, so a watcher may publish
+ * every version through an atomic reference, readers never see a set being changed.
+ * <p>
+ * every child is tagged with the mod revision it was put at, changes are applied only if
+ * newer than both the child and the revision the set was listed at, so an event delivered
+ * late never undoes a newer state. listed children are tagged with the listing revision,
+ * it bounds their mod revisions and no event at or below it is applied anyway.
+ */
+public final class ChildrenSet extends AbstractSet<String> {
+
+    private static final int BITS = 5;
+
+    private static final int MASK = (1 << BITS) - 1;
+
+    private static final BitmapNode EMPTY_NODE = new BitmapNode(0, new Object[0]);
+
+    private static final ChildrenSet EMPTY = new ChildrenSet(EMPTY_NODE, 0, 0);
+
+    private final BitmapNode root;
+
+    private final int size;
+
+    private final long revision;
+
+    /**
+     * materialized once per version, shared by every notification of it.
+     */
+    private volatile List<String> list;
+
+    private ChildrenSet(BitmapNode root, int size, long revision) {
+        this.root = root;
+        this.size = size;
+        this.revision = revision;
+    }
+
+    public static ChildrenSet empty() {
+        return EMPTY;
+    }
+
+    /**
+     * children listed at revision.
+     */
+    public static ChildrenSet of(Collection<String> children, long revision) {
+        BitmapNode root = EMPTY_NODE;
+        int size = 0;
+        for (String child : children) {
+            if (root.get(child, child.hashCode(), 0) == null) {
+                root = root.put(new Child(child, revision), child.hashCode(), 0);
+                size++;
+            }
+        }
+        return new ChildrenSet(root, size, revision);
+    }
+
+    /**
+     * @return a set containing the child put at modRevision, this set if the put is not newer.
+     */
+    public ChildrenSet put(String child, long modRevision) {
+        if (modRevision <= revision) {
+            return this;
+        }
+        Child current = root.get(child, child.hashCode(), 0);
+        if (current != null && current.modRevision >= modRevision) {
+            return this;
+        }
+        BitmapNode node = root.put(new Child(child, modRevision), child.hashCode(), 0);
+        return new ChildrenSet(node, current == null ? size + 1 : size, revision);
+    }
+
+    /**
+     * @return a set without the child deleted at modRevision, this set if absent or put later.
+     */
+    public ChildrenSet delete(String child, long modRevision) {
+        Child current = root.get(child, child.hashCode(), 0);
+        if (current == null || current.modRevision >= modRevision) {
+            return this;
+        }
+        Node node = root.remove(child, child.hashCode(), 0);
+        return new ChildrenSet(node == null ? EMPTY_NODE : (BitmapNode) node, size - 1, revision);
+    }
+
+    /**
+     * the revision the set was listed at.
+     */
+    public long getRevision() {
+        return revision;
+    }
+
+    /**
+     * @return the mod revision of the child, -1 if absent.
+     */
+    public long getModRevision(String child) {
+        Child current = root.get(child, child.hashCode(), 0);
+        return current == null ? -1 : current.modRevision;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return o instanceof String && root.get((String) o, o.hashCode(), 0) != null;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Iterator<String> iterator() {
+        return asList().iterator();
+    }
+
+    /**
+     * an unmodifiable list of the children, built on first use.
+     */
+    public List<String> asList() {
+        List<String> current = list;
+        if (current == null) {
+            List<String> children = new ArrayList<>(size);
+            root.collect(children);
+            list = current = Collections.unmodifiableList(children);
+        }
+        return current;
+    }
+
+    private static int index(int hash, int shift) {
+        return (hash >>> shift) & MASK;
+    }
+
+    /**
+     * a node holding a single child can be inlined into its parent.
+     */
+    private static Object compact(Node node) {
+        Child single = node.single();
+        return single != null ? single : node;
+    }
+
+    private static Node merge(Child a, int ha, Child b, int hb, int shift) {
+        if (ha == hb) {
+            return new CollisionNode(ha, new Child[]{a, b});
+        }
+        int ia = index(ha, shift), ib = index(hb, shift);
+        if (ia == ib) {
+            return new BitmapNode(1 << ia, new Object[]{merge(a, ha, b, hb, shift + BITS)});
+        }
+        return new BitmapNode((1 << ia) | (1 << ib), ia < ib ? new Object[]{a, b} : new Object[]{b, a});
+    }
+
+    private static final class Child {
+
+        final String name;
+
+        final long modRevision;
+
+        Child(String name, long modRevision) {
+            this.name = name;
+            this.modRevision = modRevision;
+        }
+    }
+
+    private abstract static class Node {
+
+        abstract Child get(String child, int hash, int shift);
+
+        /**
+         * adds or replaces the child.
+         */
+        abstract Node put(Child child, int hash, int shift);
+
+        /**
+         * @return this node if unchanged, null if nothing left.
+         */
+        abstract Node remove(String child, int hash, int shift);
+
+        abstract Child single();
+
+        abstract void collect(List<String> children);
+    }
+
+    /**
+     * entries are children or sub nodes, ordered by the bits set in bitmap.
+     */
+    private static final class BitmapNode extends Node {
+
+        private final int bitmap;
+
+        private final Object[] entries;
+
+        BitmapNode(int bitmap, Object[] entries) {
+            this.bitmap = bitmap;
+            this.entries = entries;
+        }
+
+        private int position(int bit) {
+            return Integer.bitCount(bitmap & (bit - 1));
+        }
+
+        @Override
+        Child get(String child, int hash, int shift) {
+            int bit = 1 << index(hash, shift);
+            if ((bitmap & bit) == 0) {
+                return null;
+            }
+            Object entry = entries[position(bit)];
+            if (entry instanceof Node) {
+                return ((Node) entry).get(child, hash, shift + BITS);
+            }
+            return ((Child) entry).name.equals(child) ? (Child) entry : null;
+        }
+
+        @Override
+        BitmapNode put(Child child, int hash, int shift) {
+            int bit = 1 << index(hash, shift);
+            int position = position(bit);
+            if ((bitmap & bit) == 0) {
+                Object[] copy = new Object[entries.length + 1];
+                System.arraycopy(entries, 0, copy, 0, position);
+                copy[position] = child;
+                System.arraycopy(entries, position, copy, position + 1, entries.length - position);
+                return new BitmapNode(bitmap | bit, copy);
+            }
+            Object entry = entries[position];
+            Object replacement;
+            if (entry instanceof Node) {
+                replacement = ((Node) entry).put(child, hash, shift + BITS);
+            } else if (((Child) entry).name.equals(child.name)) {
+                replacement = child;
+            } else {
+                replacement = merge((Child) entry, ((Child) entry).name.hashCode(), child, hash, shift + BITS);
+            }
+            return replace(position, replacement);
+        }
+
+        @Override
+        Node remove(String child, int hash, int shift) {
+            int bit = 1 << index(hash, shift);
+            if ((bitmap & bit) == 0) {
+                return this;
+            }
+            int position = position(bit);
+            Object entry = entries[position];
+            if (entry instanceof Node) {
+                Node node = ((Node) entry).remove(child, hash, shift + BITS);
+                if (node == entry) {
+                    return this;
+                }
+                if (node != null) {
+                    return replace(position, compact(node));
+                }
+            } else if (!((Child) entry).name.equals(child)) {
+                return this;
+            }
+            if (entries.length == 1) {
+                return null;
+            }
+            Object[] copy = new Object[entries.length - 1];
+            System.arraycopy(entries, 0, copy, 0, position);
+            System.arraycopy(entries, position + 1, copy, position, copy.length - position);
+            return new BitmapNode(bitmap & ~bit, copy);
+        }
+
+        private BitmapNode replace(int position, Object entry) {
+            Object[] copy = entries.clone();
+            copy[position] = entry;
+            return new BitmapNode(bitmap, copy);
+        }
+
+        @Override
+        Child single() {
+            return entries.length == 1 && entries[0] instanceof Child ? (Child) entries[0] : null;
+        }
+
+        @Override
+        void collect(List<String> children) {
+            for (Object entry : entries) {
+                if (entry instanceof Node) {
+                    ((Node) entry).collect(children);
+                } else {
+                    children.add(((Child) entry).name);
+                }
+            }
+        }
+    }
+
+    /**
+     * children of the same hash code.
+     */
+    private static final class CollisionNode extends Node {
+
+        private final int hash;
+
+        private final Child[] children;
+
+        CollisionNode(int hash, Child[] children) {
+            this.hash = hash;
+            this.children = children;
+        }
+
+        private int indexOf(String child) {
+            for (int i = 0; i < children.length; i++) {
+                if (children[i].name.equals(child)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        Child get(String child, int hash, int shift) {
+            int index = this.hash == hash ? indexOf(child) : -1;
+            return index < 0 ? null : children[index];
+        }
+
+        @Override
+        Node put(Child child, int hash, int shift) {
+            if (this.hash != hash) {
+                // split on the first differing bits, this node moves one level down.
+                return new BitmapNode(1 << index(this.hash, shift), new Object[]{this})
+                        .put(child, hash, shift);
+            }
+            int index = indexOf(child.name);
+            Child[] copy;
+            if (index >= 0) {
+                copy = children.clone();
+                copy[index] = child;
+            } else {
+                copy = Arrays.copyOf(children, children.length + 1);
+                copy[children.length] = child;
+            }
+            return new CollisionNode(hash, copy);
+        }
+
+        @Override
+        Node remove(String child, int hash, int shift) {
+            int index = this.hash == hash ? indexOf(child) : -1;
+            if (index < 0) {
+                return this;
+            }
+            if (children.length == 1) {
+                return null;
+            }
+            Child[] copy = new Child[children.length - 1];
+            System.arraycopy(children, 0, copy, 0, index);
+            System.arraycopy(children, index + 1, copy, index, copy.length - index);
+            return new CollisionNode(hash, copy);
+        }
+
+        @Override
+        Child single() {
+            return children.length == 1 ? children[0] : null;
+        }
+
+        @Override
+        void collect(List<String> children) {
+            for (Child child : this.children) {
+                children.add(child.name);
+            }
+        }
+    }
+}
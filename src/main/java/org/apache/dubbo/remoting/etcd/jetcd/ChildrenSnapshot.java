@@ -0,0 +1,55 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.dubbo.remoting.etcd.jetcd;
+
+import java.util.List;
+
+/**
+ * direct children of the path and the etcd revision they were read at,
+ * children are relative to the path, eg: dubbo%3A%2F%2F... below /dubbo/interface/providers.
+ */
+public class ChildrenSnapshot {
+
+    private final String path;
+
+    private final long revision;
+
+    private final List<String> children;
+
+    public ChildrenSnapshot(String path, long revision, List<String> children) {
+        this.path = path;
+        this.revision = revision;
+        this.children = children;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * the header revision of the range read, watching from
+     * revision + 1 will miss nothing after this snapshot.
+     */
+    public long getRevision() {
+        return revision;
+    }
+
+    public List<String> getChildren() {
+        return children;
+    }
+}
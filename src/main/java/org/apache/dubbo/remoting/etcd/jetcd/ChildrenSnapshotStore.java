@@ -0,0 +1,211 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.dubbo.remoting.etcd.jetcd;
+
+import org.apache.dubbo.common.logger.Logger;
+import org.apache.dubbo.common.logger.LoggerFactory;
+import org.apache.dubbo.common.utils.ExecutorUtil;
+import org.apache.dubbo.common.utils.NamedThreadFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * keeps the children of watched paths with their revision in a local file.
+ * <p>
+ * on startup a watcher is seeded from the stored snapshot instead of listing etcd,
+ * and resumes watching from the stored revision, so changes made meanwhile are
+ * replayed by etcd. the file is rewritten periodically, to a temporary file first
+ * and then moved in place, a crash never leaves a torn file behind.
+ */
+public class ChildrenSnapshotStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChildrenSnapshotStore.class);
+
+    private static final int MAGIC = 0xE7CD3001;
+
+    private final File file;
+
+    private final ConcurrentMap<String, ChildrenSnapshot> snapshots = new ConcurrentHashMap<>();
+
+    /**
+     * watchers tracked by the store, and the path each one is watching.
+     */
+    private final ConcurrentMap<Supplier<ChildrenSnapshot>, String> sources = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService flushExecutor;
+
+    private volatile boolean dirty;
+
+    public ChildrenSnapshotStore(File file, long flushPeriod) {
+        this.file = file;
+        load();
+        this.flushExecutor = Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("etcd3-snapshot", true));
+        this.flushExecutor.scheduleWithFixedDelay(this::flush, flushPeriod, flushPeriod, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * the latest stored snapshot of the path, null if none.
+     */
+    public ChildrenSnapshot get(String path) {
+        return snapshots.get(path);
+    }
+
+    public void track(String path, Supplier<ChildrenSnapshot> source) {
+        String previous = sources.put(source, path);
+        if (previous != null && !previous.equals(path)) {
+            forget(previous);
+        }
+    }
+
+    public void untrack(Supplier<ChildrenSnapshot> source) {
+        String path = sources.remove(source);
+        if (path != null) {
+            forget(path);
+        }
+    }
+
+    private void forget(String path) {
+        if (!sources.containsValue(path) && snapshots.remove(path) != null) {
+            dirty = true;
+        }
+    }
+
+    public synchronized void flush() {
+        try {
+            Map<String, ChildrenSnapshot> captured = new HashMap<>();
+            for (Supplier<ChildrenSnapshot> source : sources.keySet()) {
+                ChildrenSnapshot snapshot = source.get();
+                if (snapshot != null) {
+                    captured.merge(snapshot.getPath(), snapshot
+                            , (a, b) -> a.getRevision() >= b.getRevision() ? a : b);
+                }
+            }
+            for (ChildrenSnapshot snapshot : captured.values()) {
+                ChildrenSnapshot stored = snapshots.get(snapshot.getPath());
+                if (stored == null || stored.getRevision() != snapshot.getRevision()) {
+                    snapshots.put(snapshot.getPath(), snapshot);
+                    dirty = true;
+                }
+            }
+            if (dirty) {
+                dirty = false;
+                write();
+            }
+        } catch (Throwable t) {
+            dirty = true;
+            logger.warn("Failed to save etcd3 snapshot to " + file + ", cause: " + t.getMessage(), t);
+        }
+    }
+
+    public void close() {
+        ExecutorUtil.shutdownNow(flushExecutor, 100);
+        flush();
+    }
+
+    private void write() throws IOException {
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.exists() && !parent.mkdirs()) {
+            throw new IOException("Invalid snapshot directory " + parent);
+        }
+        File tmp = new File(parent, file.getName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new GZIPOutputStream(new FileOutputStream(tmp))))) {
+            out.writeInt(MAGIC);
+            out.writeInt(snapshots.size());
+            for (Map.Entry<String, ChildrenSnapshot> entry : snapshots.entrySet()) {
+                ChildrenSnapshot snapshot = entry.getValue();
+                writeString(out, entry.getKey());
+                out.writeLong(snapshot.getRevision());
+                List<String> children = snapshot.getChildren();
+                out.writeInt(children.size());
+                for (String child : children) {
+                    writeString(out, child);
+                }
+            }
+        }
+        try {
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private void load() {
+        if (!file.exists()) {
+            return;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new GZIPInputStream(new FileInputStream(file))))) {
+            if (in.readInt() != MAGIC) {
+                logger.warn("Ignore unknown etcd3 snapshot file " + file);
+                return;
+            }
+            int paths = in.readInt();
+            for (int i = 0; i < paths; i++) {
+                String path = readString(in);
+                long revision = in.readLong();
+                int size = in.readInt();
+                List<String> children = new ArrayList<>(size);
+                for (int j = 0; j < size; j++) {
+                    children.add(readString(in));
+                }
+                snapshots.put(path, new ChildrenSnapshot(path, revision, children));
+            }
+            if (logger.isInfoEnabled()) {
+                logger.info("Load etcd3 snapshot of " + paths + " paths from " + file);
+            }
+        } catch (Throwable t) {
+            snapshots.clear();
+            logger.warn("Failed to load etcd3 snapshot from " + file + ", cause: " + t.getMessage(), t);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.dubbo.remoting.etcd.jetcd;
+
+import org.apache.dubbo.remoting.etcd.RetryPolicy;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * bounds the retries of another policy by the total elapsed time,
+ * the last sleep is shortened so it never outlasts the deadline.
+ */
+public class DeadlineRetry implements RetryPolicy {
+
+    private final RetryPolicy retryPolicy;
+    private final long deadlineMilliseconds;
+
+    public DeadlineRetry(RetryPolicy retryPolicy, long deadline, TimeUnit unit) {
+        this.retryPolicy = retryPolicy;
+        this.deadlineMilliseconds = unit.toMillis(deadline);
+    }
+
+    @Override
+    public boolean shouldRetry(int retried, long elapsed, boolean sleep) {
+        if (elapsed >= deadlineMilliseconds
+                || !retryPolicy.shouldRetry(retried, elapsed, false)) {
+            return false;
+        }
+        try {
+            if (sleep) {
+                Thread.sleep(getSleepTime(retried, elapsed));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public long getSleepTime(int retried, long elapsed) {
+        return Math.max(0, Math.min(retryPolicy.getSleepTime(retried, elapsed), deadlineMilliseconds - elapsed));
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.dubbo.remoting.etcd.jetcd;
+
+import org.apache.dubbo.remoting.etcd.AbstractRetryPolicy;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * exponential backoff with full jitter above base, the n-th sleep is picked at random
+ * between base and base * 3^(n+1), capped by max sleep, so clients failing at the same
+ * moment (eg. etcd leader election) spread their retries instead of retrying in lockstep.
+ * <p>
+ * the sleep depends on the retry count only, never on the previous sleep, so one
+ * instance is shared by every retry loop.
+ */
+public class ExponentialBackoffRetry extends AbstractRetryPolicy {
+
+    private final long baseSleepMilliseconds;
+    private final long maxSleepMilliseconds;
+
+    public ExponentialBackoffRetry(int maxRetried, long baseSleepTime, long maxSleepTime, TimeUnit unit) {
+        super(maxRetried);
+        this.baseSleepMilliseconds = Math.max(1, unit.toMillis(baseSleepTime));
+        this.maxSleepMilliseconds = Math.max(baseSleepMilliseconds, unit.toMillis(maxSleepTime));
+    }
+
+    @Override
+    public long getSleepTime(int retried, long elapsed) {
+        long upper = baseSleepMilliseconds;
+        for (int i = 0; i <= retried && upper < maxSleepMilliseconds; i++) {
+            upper *= 3;
+        }
+        upper = Math.min(upper, maxSleepMilliseconds);
+        if (upper <= baseSleepMilliseconds) {
+            return baseSleepMilliseconds;
+        }
+        return ThreadLocalRandom.current().nextLong(baseSleepMilliseconds, upper + 1);
+    }
+}
@@ -23,7 +23,12 @@ import org.apache.dubbo.common.logger.LoggerFactory;
 import org.apache.dubbo.common.utils.ExecutorUtil;
 import org.apache.dubbo.common.utils.NamedThreadFactory;
 import org.apache.dubbo.remoting.etcd.ChildListener;
+import org.apache.dubbo.remoting.etcd.IncrementalChildListener;
 import org.apache.dubbo.remoting.etcd.StateListener;
+import org.apache.dubbo.remoting.etcd.metrics.Counter;
+import org.apache.dubbo.remoting.etcd.metrics.EtcdMetrics;
+import org.apache.dubbo.remoting.etcd.metrics.Gauge;
+import org.apache.dubbo.remoting.etcd.metrics.Operation;
 import org.apache.dubbo.remoting.etcd.option.Constants;
 import org.apache.dubbo.remoting.etcd.option.OptionUtil;
 import org.apache.dubbo.remoting.etcd.support.AbstractEtcdClient;
@@ -31,7 +36,6 @@ import org.apache.dubbo.remoting.etcd.support.AbstractEtcdClient;
 import com.google.protobuf.ByteString;
 import io.etcd.jetcd.ByteSequence;
 import io.etcd.jetcd.api.Event;
-import io.etcd.jetcd.api.KeyValue;
 import io.etcd.jetcd.api.WatchCancelRequest;
 import io.etcd.jetcd.api.WatchCreateRequest;
 import io.etcd.jetcd.api.WatchGrpc;
@@ -40,26 +44,25 @@ import io.etcd.jetcd.api.WatchResponse;
 import io.etcd.jetcd.common.exception.ClosedClientException;
 import io.grpc.Status;
 import io.grpc.stub.StreamObserver;
-import io.netty.util.internal.ConcurrentSet;
 
+import java.io.File;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Iterator;
 import java.util.List;
+import java.util.Queue;
 import java.util.Random;
-import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.ReentrantLock;
-
-import static java.util.stream.Collectors.toList;
-import static org.apache.dubbo.remoting.etcd.jetcd.JEtcdClientWrapper.UTF_8;
+import java.util.function.Supplier;
 
 /**
  * etct3 client.
@@ -69,11 +72,47 @@ public class JEtcdClient extends AbstractEtcdClient<JEtcdClient.EtcdWatcher> {
     private JEtcdClientWrapper clientWrapper;
     private ScheduledExecutorService reconnectSchedule;
 
-    private ExecutorService notifyExecutor;
+    private NotifyDispatcher notifyDispatcher;
+
+    /**
+     * all watchers share a small fixed pool of grpc watch streams.
+     */
+    private WatchStream[] watchStreams;
+
+    /**
+     * null unless local snapshot is enabled.
+     */
+    private ChildrenSnapshotStore snapshotStore;
 
     private int delayPeriod;
     private Logger logger = LoggerFactory.getLogger(JEtcdClient.class);
 
+    private static final Operation WATCH_CREATE = EtcdMetrics.getInstance().operation("etcd3.watch.create");
+    private static final Operation WATCH_CANCEL = EtcdMetrics.getInstance().operation("etcd3.watch.cancel");
+    private static final Operation WATCH_RECONNECT = EtcdMetrics.getInstance().operation("etcd3.watch.reconnect");
+    private static final Counter WATCH_ERRORS = EtcdMetrics.getInstance().counter("etcd3.watch.errors");
+    /**
+     * from the watch response to the listener called, per path.
+     */
+    private static final Operation NOTIFY_LAG = EtcdMetrics.getInstance().operation("etcd3.notify.lag");
+    private static final Operation NOTIFY = EtcdMetrics.getInstance().operation("etcd3.notify.deliver");
+
+    private final Gauge openStreamsGauge = () -> {
+        int open = 0;
+        for (WatchStream watchStream : watchStreams) {
+            open += watchStream.isOpen() ? 1 : 0;
+        }
+        return open;
+    };
+    private final Gauge watchersGauge = () -> {
+        int watchers = 0;
+        for (WatchStream watchStream : watchStreams) {
+            watchers += watchStream.watchers.size();
+        }
+        return watchers;
+    };
+    private final Gauge pendingNotifyGauge = () -> notifyDispatcher.getPending();
+
     public JEtcdClient(URL url) {
         super(url);
         try {
@@ -89,15 +128,28 @@ public class JEtcdClient extends AbstractEtcdClient<JEtcdClient.EtcdWatcher> {
             reconnectSchedule = Executors.newScheduledThreadPool(1,
                     new NamedThreadFactory("etcd3-watch-auto-reconnect"));
 
-            notifyExecutor = new ThreadPoolExecutor(
-                    1
-                    , url.getParameter(Constants.ETCD3_NOTIFY_MAXTHREADS_KEYS, Constants.DEFAULT_ETCD3_NOTIFY_THREADS)
-                    , Constants.DEFAULT_SESSION_TIMEOUT
-                    , TimeUnit.MILLISECONDS
-                    , new LinkedBlockingQueue<Runnable>(url.getParameter(Constants.DEFAULT_ETCD3_NOTIFY_QUEUES_KEY, Constants.DEFAULT_GRPC_QUEUES * 3))
-                    , new NamedThreadFactory("etcd3-notify", true));
+            notifyDispatcher = new NotifyDispatcher(
+                    url.getParameter(Constants.ETCD3_NOTIFY_MAXTHREADS_KEYS, Constants.DEFAULT_ETCD3_NOTIFY_THREADS)
+                    , url.getParameter(Constants.DEFAULT_ETCD3_NOTIFY_QUEUES_KEY, Constants.DEFAULT_GRPC_QUEUES * 3));
+
+            int streams = Math.max(1, url.getParameter(Constants.ETCD3_WATCH_STREAMS_KEY, Constants.DEFAULT_ETCD3_WATCH_STREAMS));
+            watchStreams = new WatchStream[streams];
+            for (int i = 0; i < streams; i++) {
+                watchStreams[i] = new WatchStream();
+            }
+
+            if (url.getParameter(Constants.ETCD3_SNAPSHOT_KEY, false)) {
+                String file = url.getParameter(Constants.ETCD3_SNAPSHOT_FILE_KEY, System.getProperty("user.home")
+                        + "/.dubbo/dubbo-registry-etcd3-" + url.getParameter(Constants.APPLICATION_KEY) + "-" + url.getAddress() + ".snapshot");
+                snapshotStore = new ChildrenSnapshotStore(new File(file)
+                        , url.getParameter(Constants.ETCD3_SNAPSHOT_PERIOD_KEY, Constants.DEFAULT_ETCD3_SNAPSHOT_PERIOD));
+            }
 
             clientWrapper.start();
+
+            EtcdMetrics.getInstance().register("etcd3.watch.streams", openStreamsGauge);
+            EtcdMetrics.getInstance().register("etcd3.watchers", watchersGauge);
+            EtcdMetrics.getInstance().register("etcd3.notify.pending", pendingNotifyGauge);
         } catch (Exception e) {
             throw new IllegalStateException(e.getMessage(), e);
         }
@@ -113,6 +165,16 @@ public class JEtcdClient extends AbstractEtcdClient<JEtcdClient.EtcdWatcher> {
         return clientWrapper.createEphemeral(path);
     }
 
+    @Override
+    public CompletableFuture<Void> doCreatePersistentAsync(String path) {
+        return clientWrapper.createPersistentAsync(path);
+    }
+
+    @Override
+    public CompletableFuture<Long> doCreateEphemeralAsync(String path) {
+        return clientWrapper.createEphemeralAsync(path);
+    }
+
     @Override
     public boolean checkExists(String path) {
         return clientWrapper.checkExists(path);
@@ -123,11 +185,21 @@ public class JEtcdClient extends AbstractEtcdClient<JEtcdClient.EtcdWatcher> {
         return new EtcdWatcher(listener);
     }
 
+    @Override
+    public EtcdWatcher createCategoriesWatcherListener(String servicePath, ChildListener listener) {
+        return new EtcdWatcher(listener, 2);
+    }
+
     @Override
     public List<String> addChildWatcherListener(String path, EtcdWatcher etcdWatcher) {
         return etcdWatcher.forPath(path);
     }
 
+    @Override
+    public CompletableFuture<List<String>> addChildWatcherListenerAsync(String path, EtcdWatcher etcdWatcher) {
+        return etcdWatcher.forPathAsync(path);
+    }
+
     @Override
     public void removeChildWatcherListener(String path, EtcdWatcher etcdWatcher) {
         etcdWatcher.unwatch();
@@ -138,6 +210,11 @@ public class JEtcdClient extends AbstractEtcdClient<JEtcdClient.EtcdWatcher> {
         return clientWrapper.getChildren(path);
     }
 
+    @Override
+    public CompletableFuture<List<String>> getChildrenAsync(String path) {
+        return clientWrapper.getChildrenAsync(path);
+    }
+
     @Override
     public boolean isConnected() {
         return clientWrapper.isConnected();
@@ -155,20 +232,66 @@ public class JEtcdClient extends AbstractEtcdClient<JEtcdClient.EtcdWatcher> {
     }
 
     @Override
-    public void delete(String path) {
+    public void doDelete(String path) {
         clientWrapper.delete(path);
     }
 
+    @Override
+    public CompletableFuture<Void> doDeleteAsync(String path) {
+        return clientWrapper.deleteAsync(path);
+    }
+
+    /**
+     * delete an ephemeral path, it is never registered again on lease recovery.
+     */
+    CompletableFuture<Void> deleteEphemeralAsync(String path) {
+        return clientWrapper.deleteEphemeralAsync(path);
+    }
+
     @Override
     public void revokeLease(long lease) {
         clientWrapper.revokeLease(lease);
     }
 
+    @Override
+    public CompletableFuture<Long> createLeaseAsync(long second) {
+        return clientWrapper.createLeaseAsync(second);
+    }
+
+    @Override
+    public CompletableFuture<Void> revokeLeaseAsync(long lease) {
+        return clientWrapper.revokeLeaseAsync(lease);
+    }
+
+    protected WatchStream streamOf(String path) {
+        return watchStreams[(path.hashCode() & Integer.MAX_VALUE) % watchStreams.length];
+    }
+
     @Override
     public void doClose() {
+        EtcdMetrics.getInstance().unregister("etcd3.watch.streams", openStreamsGauge);
+        EtcdMetrics.getInstance().unregister("etcd3.watchers", watchersGauge);
+        EtcdMetrics.getInstance().unregister("etcd3.notify.pending", pendingNotifyGauge);
+
+        try {
+            if (snapshotStore != null) {
+                snapshotStore.close();
+            }
+        } catch (Exception e) {
+            logger.warn(e.getMessage(), e);
+        }
+
+        for (WatchStream watchStream : watchStreams) {
+            try {
+                watchStream.close();
+            } catch (Exception e) {
+                logger.warn(e.getMessage(), e);
+            }
+        }
+
         try {
-            if (notifyExecutor != null) {
-                ExecutorUtil.shutdownNow(notifyExecutor, 100);
+            if (notifyDispatcher != null) {
+                notifyDispatcher.shutdown();
             }
         } catch (Exception e) {
             logger.warn(e.getMessage(), e);
@@ -185,20 +308,206 @@ public class JEtcdClient extends AbstractEtcdClient<JEtcdClient.EtcdWatcher> {
         }
     }
 
+    /**
+     * multiplexes create and cancel requests of many watchers over one grpc
+     * watch stream, responses are dispatched to the watcher by watch id.
+     */
+    protected class WatchStream implements StreamObserver<WatchResponse> {
+
+        protected StreamObserver<WatchRequest> watchRequest;
+
+        /**
+         * etcd acknowledges create requests in order, so the head of queue
+         * is always the owner of the next created response.
+         */
+        private final Queue<PendingWatch> creating = new ArrayDeque<>();
+        private final ConcurrentMap<Long, EtcdWatcher> watchers = new ConcurrentHashMap<>();
+
+        protected synchronized void watch(EtcdWatcher watcher) {
+            if (watchRequest == null) {
+                watchRequest = WatchGrpc.newStub(clientWrapper.getChannel()).watch(this);
+            }
+            creating.offer(new PendingWatch(watcher, watcher.generation.get()));
+            watcher.watchRequest = watchRequest;
+            watchRequest.onNext(watcher.nextRequest());
+        }
+
+        protected synchronized void cancel(EtcdWatcher watcher) {
+            long watchId = watcher.watchId;
+            watcher.watchId = -1;
+            if (watchId >= 0 && watchers.remove(watchId, watcher) && watchRequest != null) {
+                long start = System.nanoTime();
+                watchRequest.onNext(cancelRequest(watchId));
+                WATCH_CANCEL.record(watcher.path, 0, watcher.revision, start);
+            }
+            /**
+             * the watch in flight is cancelled when etcd acknowledges it.
+             */
+        }
+
+        @Override
+        public void onNext(WatchResponse response) {
+            long watchId = response.getWatchId();
+            EtcdWatcher watcher;
+            if (response.getCreated()) {
+                synchronized (this) {
+                    PendingWatch pending = creating.poll();
+                    if (pending == null) {
+                        return;
+                    }
+                    watcher = pending.watcher;
+                    if (pending.generation != watcher.generation.get()) {
+                        /**
+                         * watcher was cancelled or re-created before etcd acknowledged.
+                         */
+                        if (!response.getCanceled() && watchRequest != null) {
+                            watchRequest.onNext(cancelRequest(watchId));
+                        }
+                        return;
+                    }
+                    if (!response.getCanceled()) {
+                        watcher.watchId = watchId;
+                        watchers.put(watchId, watcher);
+                        WATCH_CREATE.record(watcher.path, 0, response.getHeader().getRevision(), pending.startNanos);
+                    }
+                }
+            } else {
+                watcher = response.getCanceled() ? watchers.remove(watchId) : watchers.get(watchId);
+            }
+
+            if (watcher != null) {
+                watcher.onNext(response);
+            }
+        }
+
+        @Override
+        public void onError(Throwable e) {
+            List<EtcdWatcher> affected = new ArrayList<>();
+            synchronized (this) {
+                affected.addAll(watchers.values());
+                for (PendingWatch pending : creating) {
+                    if (pending.generation == pending.watcher.generation.get()) {
+                        affected.add(pending.watcher);
+                    }
+                }
+                watchers.clear();
+                creating.clear();
+                watchRequest = null;
+            }
+
+            WATCH_ERRORS.increment();
+            logger.error("watch stream has error occurred, " + affected.size() + " watchers affected", e);
+
+            // prevents grpc on sending error to a closed watch client.
+            if (!isConnected() || affected.isEmpty()) {
+                return;
+            }
+
+            // one reconnect for the whole stream, avoiding a reconnect storm of every watcher.
+            reconnectSchedule.schedule(() -> {
+                long start = System.nanoTime();
+                for (EtcdWatcher watcher : affected) {
+                    watcher.rewatch(this);
+                }
+                WATCH_RECONNECT.record(null, affected.size(), 0, start);
+            }, new Random().nextInt(delayPeriod), TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public void onCompleted() {
+            // do not touch this method, if you want terminate this stream.
+        }
+
+        protected synchronized boolean isOpen() {
+            return watchRequest != null;
+        }
+
+        protected synchronized void close() {
+            watchers.clear();
+            creating.clear();
+            if (watchRequest != null) {
+                watchRequest.onCompleted();
+                watchRequest = null;
+            }
+        }
+
+        private WatchRequest cancelRequest(long watchId) {
+            WatchCancelRequest watchCancelRequest =
+                    WatchCancelRequest.newBuilder().setWatchId(watchId).build();
+            return WatchRequest.newBuilder().setCancelRequest(watchCancelRequest).build();
+        }
+    }
+
+    private static class PendingWatch {
+
+        final EtcdWatcher watcher;
+        final long generation;
+        final long startNanos = System.nanoTime();
+
+        PendingWatch(EtcdWatcher watcher, long generation) {
+            this.watcher = watcher;
+            this.generation = generation;
+        }
+    }
+
     public class EtcdWatcher implements StreamObserver<WatchResponse> {
 
-        protected WatchGrpc.WatchStub watchStub;
         protected StreamObserver<WatchRequest> watchRequest;
-        protected long watchId;
+        protected volatile long watchId = -1;
         protected String path;
         protected Throwable throwable;
-        protected volatile Set<String> urls = new ConcurrentSet<>();
-        private ChildListener listener;
+        /**
+         * every version of children is published as a whole, events are applied without locking.
+         */
+        protected final AtomicReference<ChildrenSet> urls = new AtomicReference<>(ChildrenSet.empty());
+        private volatile ChildListener listener;
+
+        /**
+         * changed on every create or cancel, stale acknowledges are ignored.
+         */
+        protected final AtomicLong generation = new AtomicLong();
+
+        /**
+         * the latest revision observed for current path, watch is resumed from revision + 1.
+         */
+        protected volatile long revision;
+
+        /**
+         * revision was restored from local snapshot and not yet confirmed by etcd. a listed
+         * revision is never checked, a serializable read may be served by a member ahead
+         * of the one watching, which catches up later.
+         */
+        private volatile boolean restored;
 
-        protected ReentrantLock lock = new ReentrantLock(true);
+        /**
+         * serializes forPath and resync, never taken when applying events.
+         */
+        protected ReentrantLock lock = new ReentrantLock();
+
+        /**
+         * changes of current path are delivered in order and coalesced.
+         */
+        private final NotifyDispatcher.Slot notifySlot = notifyDispatcher.newSlot(this::deliver);
+
+        private final Supplier<ChildrenSnapshot> snapshotSource = this::snapshot;
+
+        /**
+         * 1 watches direct children of path, 2 watches the children of every category below a service path.
+         */
+        private final int depth;
+
+        /**
+         * matches event keys of current path, rebuilt when path changes.
+         */
+        private volatile ChildPathMatcher matcher;
 
         public EtcdWatcher(ChildListener listener) {
+            this(listener, 1);
+        }
+
+        public EtcdWatcher(ChildListener listener, int depth) {
             this.listener = listener;
+            this.depth = depth;
         }
 
         @Override
@@ -209,38 +518,164 @@ public class JEtcdClient extends AbstractEtcdClient<JEtcdClient.EtcdWatcher> {
                 return;
             }
 
-            watchId = response.getWatchId();
+            if (response.getCanceled()) {
+                if (response.getCompactRevision() > 0) {
+                    /**
+                     * the revision to be resumed was compacted, list again.
+                     */
+                    reconnectSchedule.execute(this::resync);
+                }
+                return;
+            }
+
+            if (response.getCreated() && restored) {
+                restored = false;
+                if (response.getHeader().getRevision() < revision) {
+                    /**
+                     * the revision to be resumed is newer than etcd's, it comes from
+                     * another etcd cluster (eg. a stale local snapshot), list again.
+                     */
+                    reconnectSchedule.execute(this::resync);
+                    return;
+                }
+            }
+
+            if (response.getEventsCount() == 0) {
+                if (!response.getCreated()) {
+                    // progress notify, all events before header revision were delivered.
+                    updateRevision(response.getHeader().getRevision());
+                }
+                return;
+            }
 
             if (listener != null) {
-                int modified = 0;
-                String service = null;
-                Iterator<Event> iterator = response.getEventsList().iterator();
-                while (iterator.hasNext()) {
-                    Event event = iterator.next();
-                    switch (event.getType()) {
-                        case PUT: {
-                            if (((service = find(event)) != null)
-                                    && safeUpdate(service, true)) modified++;
-                            break;
+                ChildrenDelta delta;
+                ChildrenSet current;
+                ChildrenSet next;
+                long modRevision = 0;
+                do {
+                    delta = new ChildrenDelta();
+                    current = urls.get();
+                    next = current;
+                    for (Event event : response.getEventsList()) {
+                        String service = find(event);
+                        if (service == null) {
+                            continue;
                         }
-                        case DELETE: {
-                            if (((service = find(event)) != null)
-                                    && safeUpdate(service, false)) modified++;
-                            break;
+                        switch (event.getType()) {
+                            case PUT: {
+                                ChildrenSet changed = next.put(service, event.getKv().getModRevision());
+                                if (changed.size() > next.size()) delta.add(service);
+                                next = changed;
+                                break;
+                            }
+                            case DELETE: {
+                                ChildrenSet changed = next.delete(service, event.getKv().getModRevision());
+                                if (changed.size() < next.size()) delta.remove(service);
+                                next = changed;
+                                break;
+                            }
+                            default:
+                                break;
                         }
-                        default:
-                            break;
+                        modRevision = Math.max(modRevision, event.getKv().getModRevision());
                     }
+                    // forPath or resync replaced children meanwhile, events older than their listing are skipped.
+                } while (!urls.compareAndSet(current, next));
+                // after the events applied, revision never runs ahead of children.
+                updateRevision(modRevision);
+                delta.updateRevision(revision);
+                if (!delta.isEmpty()) {
+                    fireChildChanged(delta);
                 }
-                if (modified > 0) {
-                    notifyExecutor.execute(new Runnable() {
-                        @Override
-                        public void run() {
-                            listener.childChanged(path, new ArrayList<>(urls));
-                        }
-                    });
+
+            }
+        }
+
+        private void fireChildChanged(ChildrenDelta delta) {
+            notifySlot.submit(delta);
+        }
+
+        private void deliver(ChildrenDelta delta) {
+            ChildListener current = listener;
+            if (delta.isEmpty()) {
+                return;
+            }
+            long start = System.nanoTime();
+            NOTIFY_LAG.record(path, 0, delta.getRevision(), delta.getCreatedNanos());
+            if (current instanceof IncrementalChildListener) {
+                List<String> added = delta.getAdded();
+                List<String> removed = delta.getRemoved();
+                ((IncrementalChildListener) current).childChanged(path, added, removed, delta.getRevision());
+                NOTIFY.record(path, added.size() + removed.size(), delta.getRevision(), start);
+            } else if (current != null) {
+                List<String> children = urls.get().asList();
+                current.childChanged(path, children);
+                NOTIFY.record(path, children.size(), delta.getRevision(), start);
+            }
+        }
+
+        /**
+         * revision is read before children, children may be newer than revision
+         * but never older, replaying events after revision is harmless.
+         */
+        private ChildrenSnapshot snapshot() {
+            long current = revision;
+            String currentPath = path;
+            if (current <= 0 || currentPath == null || listener == null) {
+                return null;
+            }
+            return new ChildrenSnapshot(currentPath, current, urls.get().asList());
+        }
+
+        private void updateRevision(long observed) {
+            if (observed > revision) {
+                revision = observed;
+            }
+        }
+
+        /**
+         * list children again and apply the difference, used only when the
+         * revision to be resumed is no longer available on etcd.
+         */
+        protected void resync() {
+            if (listener == null || path == null) {
+                return;
+            }
+
+            ChildrenDelta delta = new ChildrenDelta();
+            lock.lock();
+            try {
+                ChildrenSnapshot snapshot = clientWrapper.getChildrenSnapshot(path, depth);
+                ChildrenSet latest = ChildrenSet.of(snapshot.getChildren(), snapshot.getRevision());
+                ChildrenSet previous = urls.getAndSet(latest);
+                for (String child : previous) {
+                    if (!latest.contains(child)) {
+                        delta.remove(child);
+                    }
+                }
+                for (String child : latest) {
+                    if (!previous.contains(child)) {
+                        delta.add(child);
+                    }
                 }
+                this.revision = snapshot.getRevision();
+                this.restored = false;
+                delta.updateRevision(revision);
+                this.generation.incrementAndGet();
+                streamOf(path).watch(this);
+            } catch (Exception e) {
+                tryReconnect(e);
+                return;
+            } finally {
+                lock.unlock();
+            }
 
+            logger.warn("watch client resynced path '" + path + "' at revision " + revision
+                    + " after compaction, children changed: " + !delta.isEmpty());
+
+            if (!delta.isEmpty()) {
+                fireChildChanged(delta);
             }
         }
 
@@ -251,109 +686,131 @@ public class JEtcdClient extends AbstractEtcdClient<JEtcdClient.EtcdWatcher> {
 
         public void unwatch() {
 
-            // prevents grpc on sending watchResponse to a closed watch client.
-            if (!isConnected()) {
+            this.listener = null;
+            this.generation.incrementAndGet();
+
+            if (path == null) {
                 return;
             }
 
+            if (snapshotStore != null) {
+                snapshotStore.untrack(snapshotSource);
+            }
+
             try {
-                this.listener = null;
-                if (watchRequest != null) {
-                    WatchCancelRequest watchCancelRequest =
-                            WatchCancelRequest.newBuilder().setWatchId(watchId).build();
-                    WatchRequest cancelRequest = WatchRequest.newBuilder()
-                            .setCancelRequest(watchCancelRequest).build();
-                    this.watchRequest.onNext(cancelRequest);
-                }
+                streamOf(path).cancel(this);
             } catch (Exception ignored) {
                 logger.warn("Failed to cancel watch for path '" + path + "'", ignored);
             }
         }
 
         public List<String> forPath(String path) {
+            return forPath(path, null);
+        }
 
-            if (!isConnected()) {
-                throw new ClosedClientException("watch client has been closed, path '" + path + "'");
-            }
-            if (this.path != null) {
-                unwatch();
+        /**
+         * list children without blocking, listings of many watchers started
+         * together are read by few txns, then watch as {@link #forPath(String)}.
+         */
+        public CompletableFuture<List<String>> forPathAsync(String path) {
+            if (!isConnected()
+                    || (path.equals(this.path) && revision > 0)
+                    || (snapshotStore != null && snapshotStore.get(path) != null)) {
+                // nothing to list.
+                CompletableFuture<List<String>> future = new CompletableFuture<>();
+                try {
+                    future.complete(forPath(path, null));
+                } catch (Throwable t) {
+                    future.completeExceptionally(t);
+                }
+                return future;
             }
+            /**
+             * not on the grpc thread completing the listing, forPath takes the lock
+             * held by resync across a listing and calls the listener.
+             */
+            return clientWrapper.getChildrenSnapshotAsync(path, depth)
+                    .thenApplyAsync(snapshot -> forPath(path, snapshot), reconnectSchedule);
+        }
 
-            this.path = path;
+        /**
+         * @param listed children listed in advance, null if not listed yet.
+         */
+        private List<String> forPath(String path, ChildrenSnapshot listed) {
 
+            if (!isConnected()) {
+                throw new ClosedClientException("watch client has been closed, path '" + path + "'");
+            }
             lock.lock();
             try {
 
-                this.watchStub = WatchGrpc.newStub(clientWrapper.getChannel());
-                this.watchRequest = watchStub.watch(this);
-                this.watchRequest.onNext(nextRequest());
+                if (path.equals(this.path) && revision > 0) {
+                    /**
+                     * already watching, resume from the observed revision
+                     * instead of listing all children again.
+                     */
+                    closeWatchRequest();
+                    this.generation.incrementAndGet();
+                    streamOf(path).watch(this);
+                    return urls.get().asList();
+                }
+
+                if (this.path != null) {
+                    closeWatchRequest();
+                    this.revision = 0;
+                    this.urls.set(ChildrenSet.empty());
+                }
+
+                this.path = path;
+                this.matcher = new ChildPathMatcher(path, depth);
+
+                ChildrenSnapshot stored = snapshotStore != null ? snapshotStore.get(path) : null;
+                if (stored != null) {
+                    /**
+                     * served from local snapshot, changes since its revision are replayed by watching.
+                     */
+                    this.urls.set(ChildrenSet.of(stored.getChildren(), stored.getRevision()));
+                    this.revision = stored.getRevision();
+                    this.restored = true;
+                } else {
+                    ChildrenSnapshot snapshot = listed != null ? listed : clientWrapper.getChildrenSnapshot(path, depth);
+                    /**
+                     * caching the current service
+                     */
+                    this.urls.set(ChildrenSet.of(snapshot.getChildren(), snapshot.getRevision()));
+                    this.revision = snapshot.getRevision();
+                    this.restored = false;
+                }
+
+                if (snapshotStore != null) {
+                    snapshotStore.track(path, snapshotSource);
+                }
 
-                List<String> children = clientWrapper.getChildren(path);
                 /**
-                 * caching the current service
+                 * incremental listener receives the initial children before any change.
                  */
-                if (!children.isEmpty()) {
-                    this.urls.addAll(filterChildren(children));
+                ChildListener current = listener;
+                if (current instanceof IncrementalChildListener) {
+                    current.childChanged(path, urls.get().asList());
                 }
 
-                return new ArrayList<>(urls);
-            } finally {
-                lock.unlock();
-            }
-        }
-
-        private boolean safeUpdate(String service, boolean add) {
-            lock.lock();
-            try {
                 /**
-                 * If the collection already contains the specified service, do nothing
+                 * watching after listing from the next revision, no event is lost between them.
                  */
-                return add ? this.urls.add(service) : this.urls.remove(service);
+                this.generation.incrementAndGet();
+                streamOf(path).watch(this);
+
+                return urls.get().asList();
             } finally {
                 lock.unlock();
             }
         }
 
         private String find(Event event) {
-            KeyValue keyValue = event.getKv();
-            String key = keyValue.getKey().toStringUtf8();
-
-            int len = path.length(), index = len, count = 0;
-            if (key.length() >= index) {
-                for (; (index = key.indexOf(Constants.PATH_SEPARATOR, index)) != -1; ++index) {
-                    if (count++ > 1) break;
-                }
-            }
-
             /**
              * if children changed , we should refresh invokers
              */
-            if (count == 1) {
-                /**
-                 * remove prefix
-                 */
-                return key.substring(len + 1);
-            }
-
-            return null;
-        }
-
-        private List<String> filterChildren(List<String> children) {
-            if (children == null) return Collections.emptyList();
-            if (children.size() <= 0) return children;
-            final int len = path.length();
-            return children.stream().parallel()
-                    .filter(child -> {
-                        int index = len, count = 0;
-                        if (child.length() > len) {
-                            for (; (index = child.indexOf(Constants.PATH_SEPARATOR, index)) != -1; ++index) {
-                                if (count++ > 1) break;
-                            }
-                        }
-                        return count == 1;
-                    })
-                    .map(child -> child.substring(len + 1))
-                    .collect(toList());
+            return matcher.match(event.getKv().getKey());
         }
 
         /**
@@ -361,12 +818,18 @@ public class JEtcdClient extends AbstractEtcdClient<JEtcdClient.EtcdWatcher> {
          */
         protected WatchRequest nextRequest() {
 
+            // watch below path only, siblings sharing the prefix (eg. /dubbo/Foo and /dubbo/FooBar) are excluded.
+            ByteString prefix = matcher.getPrefix();
             WatchCreateRequest.Builder builder = WatchCreateRequest.newBuilder()
-                    .setKey(ByteString.copyFromUtf8(path))
+                    .setKey(prefix)
                     .setRangeEnd(ByteString.copyFrom(
-                            OptionUtil.prefixEndOf(ByteSequence.from(path, UTF_8)).getBytes()))
+                            OptionUtil.prefixEndOf(ByteSequence.from(prefix.toByteArray())).getBytes()))
                     .setProgressNotify(true);
 
+            if (revision > 0) {
+                builder.setStartRevision(revision + 1);
+            }
+
             return WatchRequest.newBuilder().setCreateRequest(builder).build();
         }
 
@@ -393,26 +856,40 @@ public class JEtcdClient extends AbstractEtcdClient<JEtcdClient.EtcdWatcher> {
         }
 
         protected synchronized void reconnect() {
+            long start = System.nanoTime();
             this.closeWatchRequest();
             this.recreateWatchRequest();
+            WATCH_RECONNECT.record(path, 0, revision, start);
+        }
+
+        /**
+         * the shared stream was broken, watch again if still interested.
+         */
+        protected synchronized void rewatch(WatchStream watchStream) {
+            if (listener == null || path == null) {
+                return;
+            }
+            this.generation.incrementAndGet();
+            watchStream.watch(this);
+            this.throwable = null;
         }
 
         protected void recreateWatchRequest() {
-            if (watchRequest == null) {
-                this.watchStub = WatchGrpc.newStub(clientWrapper.getChannel());
-                this.watchRequest = watchStub.watch(this);
+            if (listener == null) {
+                return;
             }
-            this.watchRequest.onNext(nextRequest());
+            this.generation.incrementAndGet();
+            streamOf(path).watch(this);
             this.throwable = null;
             logger.warn("watch client retried connect for path '" + path + "', connection status : " + isConnected());
         }
 
         protected void closeWatchRequest() {
-            if (this.watchRequest == null) {
+            if (this.path == null) {
                 return;
             }
-            this.watchRequest.onCompleted();
-            this.watchRequest = null;
+            this.generation.incrementAndGet();
+            streamOf(path).cancel(this);
         }
 
         @Override
@@ -25,18 +25,35 @@ import org.apache.dubbo.common.utils.NamedThreadFactory;
 import org.apache.dubbo.common.utils.StringUtils;
 import org.apache.dubbo.remoting.etcd.RetryPolicy;
 import org.apache.dubbo.remoting.etcd.StateListener;
+import org.apache.dubbo.remoting.etcd.metrics.Counter;
+import org.apache.dubbo.remoting.etcd.metrics.EtcdMetrics;
+import org.apache.dubbo.remoting.etcd.metrics.Gauge;
+import org.apache.dubbo.remoting.etcd.metrics.Operation;
 import org.apache.dubbo.remoting.etcd.option.Constants;
+import org.apache.dubbo.remoting.etcd.option.OptionUtil;
 
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.protobuf.ByteString;
 import io.etcd.jetcd.ByteSequence;
 import io.etcd.jetcd.Client;
 import io.etcd.jetcd.ClientBuilder;
 import io.etcd.jetcd.CloseableClient;
 import io.etcd.jetcd.Observers;
+import io.etcd.jetcd.api.Compare;
+import io.etcd.jetcd.api.KVGrpc;
+import io.etcd.jetcd.api.KeyValue;
+import io.etcd.jetcd.api.LeaseGrantRequest;
+import io.etcd.jetcd.api.LeaseGrantResponse;
+import io.etcd.jetcd.api.LeaseGrpc;
+import io.etcd.jetcd.api.LeaseRevokeRequest;
+import io.etcd.jetcd.api.PutRequest;
+import io.etcd.jetcd.api.RangeRequest;
+import io.etcd.jetcd.api.RangeResponse;
+import io.etcd.jetcd.api.RequestOp;
+import io.etcd.jetcd.api.TxnRequest;
 import io.etcd.jetcd.common.exception.ErrorCode;
 import io.etcd.jetcd.common.exception.EtcdException;
 import io.etcd.jetcd.lease.LeaseKeepAliveResponse;
-import io.etcd.jetcd.options.GetOption;
-import io.etcd.jetcd.options.PutOption;
 import io.grpc.ConnectivityState;
 import io.grpc.ManagedChannel;
 import io.grpc.Status;
@@ -46,20 +63,23 @@ import io.grpc.util.RoundRobinLoadBalancerFactory;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.nio.charset.Charset;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
-import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
 
 import static java.util.stream.Collectors.toList;
@@ -72,9 +92,13 @@ public class JEtcdClientWrapper {
     private volatile Client client;
     private volatile boolean started = false;
     private volatile boolean connectState = false;
-    private ScheduledFuture future;
     private ScheduledExecutorService reconnectNotify;
-    private AtomicReference<ManagedChannel> channel;
+    private volatile ManagedChannel channel;
+
+    /**
+     * the last state notified by channel, null until the channel is monitored.
+     */
+    private volatile ConnectivityState channelState;
 
     private ConnectionStateListener connectionStateListener;
 
@@ -84,6 +108,17 @@ public class JEtcdClientWrapper {
 
     private RetryPolicy retryPolicy;
 
+    private int rangePageSize;
+
+    /**
+     * listing and existence checks are served by any member, spread by the round robin channel.
+     */
+    private boolean serializableRead;
+
+    private final TxnBatcher txnBatcher;
+
+    private final RangeBatcher rangeBatcher;
+
     private RuntimeException failed;
 
     private final ScheduledFuture<?> retryFuture;
@@ -92,6 +127,19 @@ public class JEtcdClientWrapper {
     private final Set<String> failedRegistered = new ConcurrentHashSet<String>();
 
     private final Set<String> registeredPaths = new ConcurrentHashSet<>();
+
+    private final Gauge failedRegisteredGauge = failedRegistered::size;
+    private final Gauge registeredGauge = registeredPaths::size;
+
+    private static final Operation RANGE = EtcdMetrics.getInstance().operation("etcd3.kv.range");
+    private static final Operation PUT = EtcdMetrics.getInstance().operation("etcd3.kv.put");
+    private static final Operation DELETE = EtcdMetrics.getInstance().operation("etcd3.kv.delete");
+    private static final Operation CREATE = EtcdMetrics.getInstance().operation("etcd3.kv.create");
+    private static final Operation LEASE_GRANT = EtcdMetrics.getInstance().operation("etcd3.lease.grant");
+    private static final Operation LEASE_REVOKE = EtcdMetrics.getInstance().operation("etcd3.lease.revoke");
+    private static final Counter KEEPALIVE_FAILURES = EtcdMetrics.getInstance().counter("etcd3.lease.keepalive.failures");
+    private static final Counter REGISTER_FAILURES = EtcdMetrics.getInstance().counter("etcd3.register.failures");
+
     private volatile CloseableClient keepAlive = null;
 
     /**
@@ -99,6 +147,11 @@ public class JEtcdClientWrapper {
      */
     private volatile long globalLeaseId;
 
+    /**
+     * the grant of global lease in flight, guarded by this.
+     */
+    private CompletableFuture<Long> granting;
+
     private volatile boolean cancelKeepAlive = false;
 
     public static final Charset UTF_8 = Charset.forName("UTF-8");
@@ -109,13 +162,23 @@ public class JEtcdClientWrapper {
         if (expirePeriod <= 0) {
             this.expirePeriod = Constants.DEFAULT_KEEPALIVE_TIMEOUT / 1000;
         }
-        this.channel = new AtomicReference<>();
         this.completableFuture = CompletableFuture.supplyAsync(() -> prepareClient(url));
         this.reconnectNotify = Executors.newScheduledThreadPool(1,
                 new NamedThreadFactory("reconnectNotify", true));
-        this.retryPolicy = new RetryNTimes(1, 1000, TimeUnit.MILLISECONDS);
+        this.retryPolicy = newRetryPolicy(url);
+        this.rangePageSize = Math.max(1, url.getParameter(Constants.ETCD3_RANGE_PAGE_SIZE_KEY, Constants.DEFAULT_ETCD3_RANGE_PAGE_SIZE));
+        this.serializableRead = Constants.ETCD3_READ_CONSISTENCY_SERIALIZABLE.equals(
+                url.getParameter(Constants.ETCD3_READ_CONSISTENCY_KEY, Constants.DEFAULT_ETCD3_READ_CONSISTENCY));
+        this.txnBatcher = new TxnBatcher(this::getChannel
+                , url.getParameter(Constants.ETCD3_TXN_BATCH_SIZE_KEY, Constants.DEFAULT_ETCD3_TXN_BATCH_SIZE)
+                , url.getParameter(Constants.ETCD3_TXN_BATCH_WINDOW_KEY, Constants.DEFAULT_ETCD3_TXN_BATCH_WINDOW));
+        this.rangeBatcher = new RangeBatcher(this::kvStub
+                , url.getParameter(Constants.ETCD3_RANGE_BATCH_SIZE_KEY, Constants.DEFAULT_ETCD3_RANGE_BATCH_SIZE)
+                , url.getParameter(Constants.ETCD3_RANGE_BATCH_WINDOW_KEY, Constants.DEFAULT_ETCD3_RANGE_BATCH_WINDOW));
 
         this.failed = new IllegalStateException("Etcd3 registry is not connected yet, url:" + url);
+        EtcdMetrics.getInstance().register("etcd3.registered", registeredGauge);
+        EtcdMetrics.getInstance().register("etcd3.register.failed", failedRegisteredGauge);
         int retryPeriod = url.getParameter(Constants.REGISTRY_RETRY_PERIOD_KEY, Constants.DEFAULT_REGISTRY_RETRY_PERIOD);
         this.retryFuture = retryExecutor.scheduleWithFixedDelay(new Runnable() {
             public void run() {
@@ -128,6 +191,21 @@ public class JEtcdClientWrapper {
         }, retryPeriod, retryPeriod, TimeUnit.MILLISECONDS);
     }
 
+    private static RetryPolicy newRetryPolicy(URL url) {
+        int times = url.getParameter(Constants.ETCD3_RETRY_TIMES_KEY, Constants.DEFAULT_ETCD3_RETRY_TIMES);
+        int sleep = url.getParameter(Constants.ETCD3_RETRY_SLEEP_KEY, Constants.DEFAULT_ETCD3_RETRY_SLEEP);
+        RetryPolicy retryPolicy;
+        if (Constants.ETCD3_RETRY_POLICY_FIXED.equals(
+                url.getParameter(Constants.ETCD3_RETRY_POLICY_KEY, Constants.DEFAULT_ETCD3_RETRY_POLICY))) {
+            retryPolicy = new RetryNTimes(times, sleep, TimeUnit.MILLISECONDS);
+        } else {
+            int maxSleep = url.getParameter(Constants.ETCD3_RETRY_MAX_SLEEP_KEY, Constants.DEFAULT_ETCD3_RETRY_MAX_SLEEP);
+            retryPolicy = new ExponentialBackoffRetry(times, sleep, maxSleep, TimeUnit.MILLISECONDS);
+        }
+        int deadline = url.getParameter(Constants.ETCD3_RETRY_DEADLINE_KEY, Constants.DEFAULT_ETCD3_RETRY_DEADLINE);
+        return deadline > 0 ? new DeadlineRetry(retryPolicy, deadline, TimeUnit.MILLISECONDS) : retryPolicy;
+    }
+
     private Client prepareClient(URL url) {
 
         int maxInboudSize = DEFAULT_INBOUT_SIZE;
@@ -153,10 +231,25 @@ public class JEtcdClientWrapper {
      * @return connected channel.
      */
     public ManagedChannel getChannel() {
-        if (channel.get() == null || (channel.get().isShutdown() || channel.get().isTerminated())) {
-            channel.set(newChannel(client));
+        ManagedChannel current = channel;
+        if (current == null || current.isShutdown()) {
+            boolean replaced = false;
+            synchronized (this) {
+                current = channel;
+                if (current == null || current.isShutdown()) {
+                    replaced = current != null;
+                    channel = current = newChannel(client);
+                }
+            }
+            /**
+             * the monitor of a shut down channel has stopped, follow the new one,
+             * or channelState stays at SHUTDOWN and the client is never connected again.
+             */
+            if (replaced && started && !current.isShutdown()) {
+                watchState(current, current.getState(false));
+            }
         }
-        return channel.get();
+        return current;
     }
 
     /**
@@ -168,30 +261,44 @@ public class JEtcdClientWrapper {
      * list if children directory not exists.
      */
     public List<String> getChildren(String path) {
+        return toKeys(path, getChildrenSnapshot(path).getChildren());
+    }
+
+    private static List<String> toKeys(String path, List<String> children) {
+        List<String> keys = new ArrayList<>(children.size());
+        for (String child : children) {
+            keys.add(path + Constants.PATH_SEPARATOR + child);
+        }
+        return keys;
+    }
+
+    /**
+     * find direct children directory with the revision they were read at,
+     * excluding path self, never return null.
+     *
+     * @param path the path to be found direct children.
+     * @return direct children directory and the header revision of the read.
+     */
+    public ChildrenSnapshot getChildrenSnapshot(String path) {
+        return getChildrenSnapshot(path, 1);
+    }
+
+    /**
+     * find descendants at the depth below path, 1 for direct children,
+     * 2 for grandchildren and so on.
+     *
+     * @param path  the path to be found descendants.
+     * @param depth the depth of descendants below path.
+     * @return descendants and the header revision of the read.
+     */
+    public ChildrenSnapshot getChildrenSnapshot(String path, int depth) {
         try {
             return RetryLoops.invokeWithRetry(
-                    new Callable<List<String>>() {
+                    new Callable<ChildrenSnapshot>() {
                         @Override
-                        public List<String> call() throws Exception {
+                        public ChildrenSnapshot call() throws Exception {
                             requiredNotNull(client, failed);
-                            int len = path.length();
-                            return client.getKVClient()
-                                    .get(ByteSequence.from(path, UTF_8),
-                                            GetOption.newBuilder().withPrefix(ByteSequence.from(path, UTF_8)).build())
-                                    .get(DEFAULT_REQUEST_TIMEOUT, TimeUnit.MILLISECONDS)
-                                    .getKvs().stream().parallel()
-                                    .filter(pair -> {
-                                        String key = pair.getKey().toString(UTF_8);
-                                        int index = len, count = 0;
-                                        if (key.length() > len) {
-                                            for (; (index = key.indexOf(Constants.PATH_SEPARATOR, index)) != -1; ++index) {
-                                                if (count++ > 1) break;
-                                            }
-                                        }
-                                        return count == 1;
-                                    })
-                                    .map(pair -> pair.getKey().toString(UTF_8))
-                                    .collect(toList());
+                            return rangeChildren(path, depth).get();
                         }
                     }, retryPolicy);
         } catch (Exception e) {
@@ -199,9 +306,116 @@ public class JEtcdClientWrapper {
         }
     }
 
+    public CompletableFuture<List<String>> getChildrenAsync(String path) {
+        return getChildrenSnapshotAsync(path).thenApply(snapshot -> toKeys(path, snapshot.getChildren()));
+    }
+
+    public CompletableFuture<ChildrenSnapshot> getChildrenSnapshotAsync(String path) {
+        return getChildrenSnapshotAsync(path, 1);
+    }
+
+    public CompletableFuture<ChildrenSnapshot> getChildrenSnapshotAsync(String path, int depth) {
+        return RetryLoops.invokeWithRetryAsync(
+                new Callable<CompletableFuture<ChildrenSnapshot>>() {
+                    @Override
+                    public CompletableFuture<ChildrenSnapshot> call() throws Exception {
+                        requiredNotNull(client, failed);
+                        return rangeChildren(path, depth);
+                    }
+                }, retryPolicy, retryExecutor);
+    }
+
+    /**
+     * read keys only in pages of bounded size, all pages are pinned to the
+     * revision of the first one, so the result is a consistent snapshot.
+     * <p>
+     * only the first page may be serializable, a member behind the pinned revision
+     * would fail the following ones as a future revision, a linearizable read waits
+     * until the member has applied it.
+     */
+    private CompletableFuture<ChildrenSnapshot> rangeChildren(String path, int depth) {
+        ChildPathMatcher matcher = new ChildPathMatcher(path, depth);
+        ByteString rangeEnd = ByteString.copyFrom(
+                OptionUtil.prefixEndOf(ByteSequence.from(matcher.getPrefix().toByteArray())).getBytes());
+        long start = System.nanoTime();
+        return rangeChildren(path, matcher, matcher.getPrefix(), rangeEnd, 0, new ArrayList<>())
+                .whenComplete((snapshot, e) -> {
+                    if (e == null) {
+                        RANGE.record(path, snapshot.getChildren().size(), snapshot.getRevision(), start);
+                    } else {
+                        RANGE.fail(path, start, e);
+                    }
+                });
+    }
+
+    private CompletableFuture<ChildrenSnapshot> rangeChildren(String path, ChildPathMatcher matcher, ByteString key
+            , ByteString rangeEnd, long revision, List<String> children) {
+        RangeRequest.Builder builder = RangeRequest.newBuilder()
+                .setKey(key)
+                .setRangeEnd(rangeEnd)
+                .setKeysOnly(true)
+                .setSerializable(serializableRead && revision == 0)
+                .setLimit(rangePageSize);
+        if (revision > 0) {
+            builder.setRevision(revision);
+        }
+
+        /**
+         * first pages of listings submitted together are read by one txn,
+         * the following pages are pinned to its revision.
+         */
+        CompletableFuture<RangeResponse> page = revision > 0
+                ? toCompletableFuture(kvStub().range(builder.build()))
+                : rangeBatcher.range(builder.build());
+        return page.thenCompose(response -> {
+            long snapshotRevision = revision > 0 ? revision : response.getHeader().getRevision();
+
+            for (KeyValue keyValue : response.getKvsList()) {
+                String child = matcher.match(keyValue.getKey());
+                if (child != null) {
+                    children.add(child);
+                }
+            }
+
+            int count = response.getKvsCount();
+            if (!response.getMore() || count == 0) {
+                return CompletableFuture.completedFuture(new ChildrenSnapshot(path, snapshotRevision, children));
+            }
+            // continue from the key right after the last one.
+            ByteString next = response.getKvs(count - 1).getKey().concat(ByteString.copyFrom(OptionUtil.NO_PREFIX_END));
+            return rangeChildren(path, matcher, next, rangeEnd, snapshotRevision, children);
+        });
+    }
+
+    /**
+     * every request is bounded by a deadline, so the returned futures always complete.
+     */
+    private KVGrpc.KVFutureStub kvStub() {
+        return KVGrpc.newFutureStub(getChannel())
+                .withDeadlineAfter(DEFAULT_REQUEST_TIMEOUT, TimeUnit.MILLISECONDS);
+    }
+
+    static <T> CompletableFuture<T> toCompletableFuture(ListenableFuture<T> listenable) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        listenable.addListener(() -> {
+            try {
+                future.complete(listenable.get());
+            } catch (ExecutionException e) {
+                future.completeExceptionally(e.getCause());
+            } catch (Throwable t) {
+                future.completeExceptionally(t);
+            }
+        }, Runnable::run);
+        return future;
+    }
+
     public boolean isConnected() {
-        return ConnectivityState.READY == (getChannel().getState(false))
-                || ConnectivityState.IDLE == (getChannel().getState(false));
+        ConnectivityState state = channelState;
+        if (state == null) {
+            state = getChannel().getState(false);
+        }
+        return ConnectivityState.READY == state
+                || ConnectivityState.IDLE == state;
     }
 
     public long createLease(long second) {
@@ -211,8 +425,10 @@ public class JEtcdClientWrapper {
                         @Override
                         public Long call() throws Exception {
                             requiredNotNull(client, failed);
+                            long start = System.nanoTime();
                             return client.getLeaseClient()
                                     .grant(second)
+                                    .whenComplete(LEASE_GRANT.recorder(null, start))
                                     .get(DEFAULT_REQUEST_TIMEOUT, TimeUnit.MILLISECONDS)
                                     .getID();
                         }
@@ -229,8 +445,10 @@ public class JEtcdClientWrapper {
                         @Override
                         public Void call() throws Exception {
                             requiredNotNull(client, failed);
+                            long start = System.nanoTime();
                             client.getLeaseClient()
                                     .revoke(lease)
+                                    .whenComplete(LEASE_REVOKE.recorder(null, start))
                                     .get(DEFAULT_REQUEST_TIMEOUT, TimeUnit.MILLISECONDS);
                             return null;
                         }
@@ -240,6 +458,41 @@ public class JEtcdClientWrapper {
         }
     }
 
+    public CompletableFuture<Long> createLeaseAsync(long second) {
+        return RetryLoops.invokeWithRetryAsync(
+                new Callable<CompletableFuture<Long>>() {
+                    @Override
+                    public CompletableFuture<Long> call() throws Exception {
+                        requiredNotNull(client, failed);
+                        LeaseGrantRequest grant = LeaseGrantRequest.newBuilder().setTTL(second).build();
+                        long start = System.nanoTime();
+                        return toCompletableFuture(leaseStub().leaseGrant(grant))
+                                .whenComplete(LEASE_GRANT.recorder(null, start))
+                                .thenApply(LeaseGrantResponse::getID);
+                    }
+                }, retryPolicy, retryExecutor);
+    }
+
+    public CompletableFuture<Void> revokeLeaseAsync(long lease) {
+        return RetryLoops.invokeWithRetryAsync(
+                new Callable<CompletableFuture<Void>>() {
+                    @Override
+                    public CompletableFuture<Void> call() throws Exception {
+                        requiredNotNull(client, failed);
+                        LeaseRevokeRequest revoke = LeaseRevokeRequest.newBuilder().setID(lease).build();
+                        long start = System.nanoTime();
+                        return toCompletableFuture(leaseStub().leaseRevoke(revoke))
+                                .whenComplete(LEASE_REVOKE.recorder(null, start))
+                                .thenApply(response -> null);
+                    }
+                }, retryPolicy, retryExecutor);
+    }
+
+    private LeaseGrpc.LeaseFutureStub leaseStub() {
+        return LeaseGrpc.newFutureStub(getChannel())
+                .withDeadlineAfter(DEFAULT_REQUEST_TIMEOUT, TimeUnit.MILLISECONDS);
+    }
+
     public long createLease(long ttl, long timeout, TimeUnit unit)
             throws InterruptedException, ExecutionException, TimeoutException {
 
@@ -264,8 +517,20 @@ public class JEtcdClientWrapper {
                         @Override
                         public Boolean call() throws Exception {
                             requiredNotNull(client, failed);
-                            return client.getKVClient()
-                                    .get(ByteSequence.from(path, UTF_8), GetOption.newBuilder().withCountOnly(true).build())
+                            RangeRequest request = RangeRequest.newBuilder()
+                                    .setKey(ByteString.copyFromUtf8(path))
+                                    .setCountOnly(true)
+                                    .setSerializable(serializableRead)
+                                    .build();
+                            long start = System.nanoTime();
+                            return toCompletableFuture(kvStub().range(request))
+                                    .whenComplete((response, e) -> {
+                                        if (e == null) {
+                                            RANGE.record(path, (int) response.getCount(), response.getHeader().getRevision(), start);
+                                        } else {
+                                            RANGE.fail(path, start, e);
+                                        }
+                                    })
                                     .get(DEFAULT_REQUEST_TIMEOUT, TimeUnit.MILLISECONDS)
                                     .getCount() > 0;
                         }
@@ -298,6 +563,10 @@ public class JEtcdClientWrapper {
         }
     }
 
+    /**
+     * create the path only if it does not exist yet, an existing path is not
+     * written again, so no watch event is fired for it.
+     */
     public void createPersistent(String path) {
         try {
             RetryLoops.invokeWithRetry(
@@ -305,9 +574,9 @@ public class JEtcdClientWrapper {
                         @Override
                         public Void call() throws Exception {
                             requiredNotNull(client, failed);
-                            client.getKVClient()
-                                    .put(ByteSequence.from(path, UTF_8),
-                                            ByteSequence.from(String.valueOf(path.hashCode()), UTF_8))
+                            long start = System.nanoTime();
+                            toCompletableFuture(kvStub().txn(createIfAbsent(path)))
+                                    .whenComplete(CREATE.recorder(path, start))
                                     .get(DEFAULT_REQUEST_TIMEOUT, TimeUnit.MILLISECONDS);
                             return null;
                         }
@@ -317,6 +586,35 @@ public class JEtcdClientWrapper {
         }
     }
 
+    public CompletableFuture<Void> createPersistentAsync(String path) {
+        return RetryLoops.invokeWithRetryAsync(
+                new Callable<CompletableFuture<Void>>() {
+                    @Override
+                    public CompletableFuture<Void> call() throws Exception {
+                        requiredNotNull(client, failed);
+                        long start = System.nanoTime();
+                        return toCompletableFuture(kvStub().txn(createIfAbsent(path)))
+                                .whenComplete(CREATE.recorder(path, start))
+                                .thenApply(response -> null);
+                    }
+                }, retryPolicy, retryExecutor);
+    }
+
+    private TxnRequest createIfAbsent(String path) {
+        ByteString key = ByteString.copyFromUtf8(path);
+        return TxnRequest.newBuilder()
+                .addCompare(Compare.newBuilder()
+                        .setKey(key)
+                        .setTarget(Compare.CompareTarget.VERSION)
+                        .setResult(Compare.CompareResult.EQUAL)
+                        .setVersion(0))
+                .addSuccess(RequestOp.newBuilder()
+                        .setRequestPut(PutRequest.newBuilder()
+                                .setKey(key)
+                                .setValue(ByteString.copyFromUtf8(String.valueOf(path.hashCode())))))
+                .build();
+    }
+
     /**
      * create new ephemeral path save to etcd .
      * if node disconnect from etcd, it will be deleted
@@ -331,17 +629,7 @@ public class JEtcdClientWrapper {
                     new Callable<Long>() {
                         @Override
                         public Long call() throws Exception {
-                            requiredNotNull(client, failed);
-
-                            registeredPaths.add(path);
-                            keepAlive();
-                            final long leaseId = globalLeaseId;
-                            client.getKVClient()
-                                    .put(ByteSequence.from(path, UTF_8)
-                                            , ByteSequence.from(String.valueOf(leaseId), UTF_8)
-                                            , PutOption.newBuilder().withLeaseId(leaseId).build())
-                                    .get(DEFAULT_REQUEST_TIMEOUT, TimeUnit.MILLISECONDS);
-                            return leaseId;
+                            return putEphemeral(path).get(DEFAULT_REQUEST_TIMEOUT, TimeUnit.MILLISECONDS);
                         }
                     }, retryPolicy);
         } catch (Exception e) {
@@ -349,6 +637,31 @@ public class JEtcdClientWrapper {
         }
     }
 
+    public CompletableFuture<Long> createEphemeralAsync(String path) {
+        return RetryLoops.invokeWithRetryAsync(
+                new Callable<CompletableFuture<Long>>() {
+                    @Override
+                    public CompletableFuture<Long> call() throws Exception {
+                        return putEphemeral(path);
+                    }
+                }, retryPolicy, retryExecutor);
+    }
+
+    /**
+     * the put is committed together with other pending puts and deletes in one txn.
+     */
+    private CompletableFuture<Long> putEphemeral(String path) throws Exception {
+        requiredNotNull(client, failed);
+
+        registeredPaths.add(path);
+        return keepAlive().thenCompose(leaseId -> {
+            long start = System.nanoTime();
+            return txnBatcher.put(path, String.valueOf(leaseId), leaseId)
+                    .whenComplete(PUT.recorder(path, start))
+                    .thenApply(v -> leaseId);
+        });
+    }
+
     // easy for mock
     public void keepAlive(long lease) {
         this.keepAlive(lease, null);
@@ -384,20 +697,45 @@ public class JEtcdClientWrapper {
         this.keepAlive = client.getLeaseClient().keepAlive(lease, observer);
     }
 
-    private void keepAlive() throws Exception {
-        if (keepAlive == null) {
-            synchronized (this) {
-                if (keepAlive == null) {
-                    this.globalLeaseId = client.getLeaseClient()
-                            .grant(expirePeriod)
-                            .get(DEFAULT_REQUEST_TIMEOUT, TimeUnit.MILLISECONDS)
-                            .getID();
-                    /**
-                     * If the keepAlive expires, the registration will be re-attempted
-                     */
-                    keepAlive(globalLeaseId, (NULL) -> recovery());
-                }
+    /**
+     * the global lease, granted on first use without blocking, concurrent callers share the grant.
+     */
+    private CompletableFuture<Long> keepAlive() {
+        if (keepAlive != null) {
+            return CompletableFuture.completedFuture(globalLeaseId);
+        }
+        synchronized (this) {
+            if (keepAlive != null) {
+                return CompletableFuture.completedFuture(globalLeaseId);
+            }
+            if (granting != null) {
+                return granting;
             }
+
+            CompletableFuture<Long> granted = new CompletableFuture<>();
+            granting = granted;
+            LeaseGrantRequest grant = LeaseGrantRequest.newBuilder().setTTL(expirePeriod).build();
+            long start = System.nanoTime();
+            toCompletableFuture(leaseStub().leaseGrant(grant))
+                    .whenComplete(LEASE_GRANT.recorder(null, start))
+                    .whenComplete((response, e) -> {
+                        synchronized (this) {
+                            granting = null;
+                            if (e == null) {
+                                this.globalLeaseId = response.getID();
+                                /**
+                                 * If the keepAlive expires, the registration will be re-attempted
+                                 */
+                                keepAlive(globalLeaseId, (NULL) -> recovery());
+                            }
+                        }
+                        if (e == null) {
+                            granted.complete(response.getID());
+                        } else {
+                            granted.completeExceptionally(e);
+                        }
+                    });
+            return granted;
         }
     }
 
@@ -415,6 +753,7 @@ public class JEtcdClientWrapper {
              *
              */
             long leaseId = globalLeaseId;
+            KEEPALIVE_FAILURES.increment();
             try {
                 if (logger.isWarnEnabled()) {
                     logger.warn("Failed to keep alive for global lease '" + leaseId + "', waiting for retry again.");
@@ -438,36 +777,60 @@ public class JEtcdClientWrapper {
 
             Set<String> ephemeralPaths = new HashSet<String>(registeredPaths);
             if (!ephemeralPaths.isEmpty()) {
-                for (String path : ephemeralPaths) {
-                    try {
+                registerAll(ephemeralPaths);
+            }
+        } catch (Throwable t) {
+            logger.warn("Unexpected error, failed to recover from global lease expired or deadline exceeded.", t);
+        }
+    }
 
-                        /**
-                         * The client is processing reconnection,
-                         * cancel remaining service registration
-                         */
-                        if (cancelKeepAlive) return;
+    /**
+     * register all paths at once, so they are committed in as few txn as possible,
+     * failed paths are left to retry again.
+     */
+    private void registerAll(Set<String> paths) {
+        Map<String, CompletableFuture<Long>> registering = new LinkedHashMap<>();
+        for (String path : paths) {
 
-                        createEphemeral(path);
-                        failedRegistered.remove(path);
-                    } catch (Exception e) {
+            /**
+             * The client is processing reconnection,
+             * cancel remaining service registration
+             */
+            if (cancelKeepAlive) return;
 
-                        /**
-                         * waiting for retry again
-                         */
-                        failedRegistered.add(path);
+            try {
+                registering.put(path, putEphemeral(path));
+            } catch (Throwable e) {
+                registerFailed(path, e);
+            }
+        }
 
-                        Status status = Status.fromThrowable(e);
-                        if (status.getCode() == Status.Code.NOT_FOUND) {
-                            cancelKeepAlive();
-                        }
-                    }
-                }
+        for (Map.Entry<String, CompletableFuture<Long>> entry : registering.entrySet()) {
+            try {
+                entry.getValue().get(DEFAULT_REQUEST_TIMEOUT, TimeUnit.MILLISECONDS);
+                failedRegistered.remove(entry.getKey());
+            } catch (Throwable e) {
+                registerFailed(entry.getKey(), e);
             }
-        } catch (Throwable t) {
-            logger.warn("Unexpected error, failed to recover from global lease expired or deadline exceeded.", t);
         }
     }
 
+    private void registerFailed(String path, Throwable e) {
+
+        /**
+         * waiting for retry again
+         */
+        failedRegistered.add(path);
+        REGISTER_FAILURES.increment();
+
+        Status status = Status.fromThrowable(e);
+        if (status.getCode() == Status.Code.NOT_FOUND) {
+            cancelKeepAlive();
+        }
+
+        logger.warn("Failed to register(keep alive) for path '" + path + "', waiting for retry again, cause: " + e.getMessage(), e);
+    }
+
     public void delete(String path) {
         try {
             RetryLoops.invokeWithRetry(
@@ -475,8 +838,9 @@ public class JEtcdClientWrapper {
                         @Override
                         public Void call() throws Exception {
                             requiredNotNull(client, failed);
-                            client.getKVClient()
-                                    .delete(ByteSequence.from(path, UTF_8))
+                            long start = System.nanoTime();
+                            txnBatcher.delete(path)
+                                    .whenComplete(DELETE.recorder(path, start))
                                     .get(DEFAULT_REQUEST_TIMEOUT, TimeUnit.MILLISECONDS);
                             registeredPaths.remove(path);
                             return null;
@@ -492,6 +856,36 @@ public class JEtcdClientWrapper {
         }
     }
 
+    /**
+     * stop keeping the ephemeral path registered and delete it, it is never put
+     * again by lease recovery nor retry, even if the delete fails.
+     */
+    public CompletableFuture<Void> deleteEphemeralAsync(String path) {
+        registeredPaths.remove(path);
+        failedRegistered.remove(path);
+        return deleteAsync(path);
+    }
+
+    public CompletableFuture<Void> deleteAsync(String path) {
+        return RetryLoops.invokeWithRetryAsync(
+                new Callable<CompletableFuture<Void>>() {
+                    @Override
+                    public CompletableFuture<Void> call() throws Exception {
+                        requiredNotNull(client, failed);
+                        long start = System.nanoTime();
+                        return txnBatcher.delete(path)
+                                .whenComplete(DELETE.recorder(path, start))
+                                .thenRun(() -> registeredPaths.remove(path));
+                    }
+                }, retryPolicy, retryExecutor)
+                .whenComplete((v, e) -> {
+                    /**
+                     * Cancel retry
+                     */
+                    failedRegistered.remove(path);
+                });
+    }
+
     public String[] endPoints(String backupAddress) {
         String[] endpoints = backupAddress.split(Constants.COMMA_SEPARATOR);
         List<String> addressess = Arrays.stream(endpoints)
@@ -503,17 +897,13 @@ public class JEtcdClientWrapper {
         return addressess.toArray(new String[0]);
     }
 
-    /**
-     * because jetcd's connection change callback not supported yet, we must
-     * loop to test if connect or disconnect event happend or not. It will be changed
-     * in the future if we found better choice.
-     */
     public void start() {
         if (!started) {
             try {
                 this.client = completableFuture.get(expirePeriod, TimeUnit.SECONDS);
                 this.connectState = isConnected();
                 this.started = true;
+                monitorState();
             } catch (Throwable t) {
                 logger.error("Timeout! etcd3 server can not be connected in : " + expirePeriod + " seconds! url: " + url, t);
 
@@ -521,36 +911,72 @@ public class JEtcdClientWrapper {
                     this.client = c;
                     if (e != null) {
                         logger.error("Got an exception when trying to create etcd3 instance, can not connect to etcd3 server, url: " + url, e);
+                        return;
                     }
+                    monitorState();
                 });
 
             }
+        }
+    }
 
-            try {
-                this.future = reconnectNotify.scheduleWithFixedDelay(new Runnable() {
-                    @Override
-                    public void run() {
-                        boolean connected = isConnected();
-                        if (connectState != connected) {
-                            int notifyState = connected ? StateListener.CONNECTED : StateListener.DISCONNECTED;
-                            if (connectionStateListener != null) {
-                                try {
-                                    if (connected) {
-                                        clearKeepAlive();
-                                    }
-                                    connectionStateListener.stateChanged(getClient(), notifyState);
-                                } finally {
-                                    cancelKeepAlive = false;
+    /**
+     * follow the state of channel by grpc's callback, connect or disconnect
+     * is noticed as soon as it happens, no need to poll the channel.
+     */
+    private void monitorState() {
+        try {
+            ManagedChannel current = getChannel();
+            watchState(current, current.getState(false));
+        } catch (Throwable t) {
+            logger.error("monitor reconnect status failed.", t);
+        }
+    }
+
+    private void watchState(ManagedChannel current, ConnectivityState source) {
+        this.channelState = source;
+        notifyStateChanged();
+        if (source == ConnectivityState.SHUTDOWN) {
+            if (started) {
+                // re-resolve now, getChannel() monitors the replacement.
+                try {
+                    getChannel();
+                } catch (Throwable t) {
+                    logger.warn("re-resolve channel failed, registry: " + url, t);
+                }
+            }
+            return;
+        }
+        current.notifyWhenStateChanged(source, () -> watchState(current, current.getState(false)));
+    }
+
+    /**
+     * runs on grpc's callback, listeners may block, so they are notified on reconnectNotify.
+     */
+    private void notifyStateChanged() {
+        try {
+            reconnectNotify.execute(new Runnable() {
+                @Override
+                public void run() {
+                    boolean connected = isConnected();
+                    if (connectState != connected) {
+                        int notifyState = connected ? StateListener.CONNECTED : StateListener.DISCONNECTED;
+                        if (connectionStateListener != null) {
+                            try {
+                                if (connected) {
+                                    clearKeepAlive();
                                 }
+                                connectionStateListener.stateChanged(getClient(), notifyState);
+                            } finally {
+                                cancelKeepAlive = false;
                             }
-                            connectState = connected;
                         }
+                        connectState = connected;
                     }
-
-                }, Constants.DEFAULT_REGISTRY_RECONNECT_PERIOD, Constants.DEFAULT_REGISTRY_RECONNECT_PERIOD, TimeUnit.MILLISECONDS);
-            } catch (Throwable t) {
-                logger.error("monitor reconnect status failed.", t);
-            }
+                }
+            });
+        } catch (RejectedExecutionException ignored) {
+            // client was closed.
         }
     }
 
@@ -581,11 +1007,8 @@ public class JEtcdClientWrapper {
         }
 
         try {
-            if (started && future != null) {
-                started = false;
-                future.cancel(true);
-                reconnectNotify.shutdownNow();
-            }
+            started = false;
+            reconnectNotify.shutdownNow();
         } catch (Exception e) {
             logger.warn("stop reconnect Notify failed, registry: " + url, e);
         }
@@ -597,6 +1020,11 @@ public class JEtcdClientWrapper {
             logger.warn(t.getMessage(), t);
         }
 
+        txnBatcher.shutdown();
+        rangeBatcher.shutdown();
+        EtcdMetrics.getInstance().unregister("etcd3.registered", registeredGauge);
+        EtcdMetrics.getInstance().unregister("etcd3.register.failed", failedRegisteredGauge);
+
         if (getClient() != null) getClient().close();
     }
 
@@ -650,28 +1078,7 @@ public class JEtcdClientWrapper {
                             + "', path size: " + failed.size());
                 }
                 try {
-                    for (String path : failed) {
-                        try {
-
-                            /**
-                             * Is it currently reconnecting ?
-                             */
-                            if (cancelKeepAlive) return;
-
-                            createEphemeral(path);
-                            failedRegistered.remove(path);
-                        } catch (Throwable e) {
-
-                            failedRegistered.add(path);
-
-                            Status status = Status.fromThrowable(e);
-                            if (status.getCode() == Status.Code.NOT_FOUND) {
-                                cancelKeepAlive();
-                            }
-
-                            logger.warn("Failed to retry register(keep alive) for path '" + path + "', waiting for again, cause: " + e.getMessage(), e);
-                        }
-                    }
+                    registerAll(failed);
                 } catch (Throwable t) {
                     logger.warn("Failed to retry register(keep alive) for path '" + failed + "', waiting for again, cause: " + t.getMessage(), t);
                 }
@@ -17,14 +17,137 @@
 package org.apache.dubbo.remoting.etcd.jetcd;
 
 import org.apache.dubbo.common.URL;
+import org.apache.dubbo.common.utils.StringUtils;
 import org.apache.dubbo.remoting.etcd.EtcdClient;
 import org.apache.dubbo.remoting.etcd.EtcdTransporter;
+import org.apache.dubbo.remoting.etcd.option.Constants;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
 
 public class JEtcdTransporter implements EtcdTransporter {
 
+    /**
+     * parameters read by the client once created, registries differing in any of them
+     * don't share a client.
+     */
+    private static final String[] CLIENT_KEYS = {
+            Constants.SESSION_TIMEOUT_KEY,
+            Constants.REGISTRY_RETRY_PERIOD_KEY,
+            Constants.ETCD3_RETRY_POLICY_KEY,
+            Constants.ETCD3_RETRY_TIMES_KEY,
+            Constants.ETCD3_RETRY_SLEEP_KEY,
+            Constants.ETCD3_RETRY_MAX_SLEEP_KEY,
+            Constants.ETCD3_RETRY_DEADLINE_KEY,
+            Constants.ETCD3_READ_CONSISTENCY_KEY,
+            Constants.ETCD3_RANGE_PAGE_SIZE_KEY,
+            Constants.ETCD3_RANGE_BATCH_SIZE_KEY,
+            Constants.ETCD3_RANGE_BATCH_WINDOW_KEY,
+            Constants.ETCD3_TXN_BATCH_SIZE_KEY,
+            Constants.ETCD3_TXN_BATCH_WINDOW_KEY,
+            Constants.ETCD3_WATCH_STREAMS_KEY,
+            Constants.ETCD3_NOTIFY_MAXTHREADS_KEYS,
+            Constants.DEFAULT_ETCD3_NOTIFY_QUEUES_KEY,
+            Constants.ETCD3_SNAPSHOT_KEY,
+            Constants.ETCD3_SNAPSHOT_FILE_KEY,
+            Constants.ETCD3_SNAPSHOT_PERIOD_KEY
+    };
+
+    /**
+     * shared clients keyed by endpoints, credentials and client parameters.
+     */
+    private final Map<String, SharedClient> clients = new HashMap<>();
+
     @Override
     public EtcdClient connect(URL url) {
-        return new JEtcdClient(url);
+        if (!url.getParameter(Constants.ETCD3_CLIENT_SHARE_KEY, Constants.DEFAULT_ETCD3_CLIENT_SHARE)) {
+            return new JEtcdClient(url);
+        }
+        String key = toKey(url);
+        EtcdClient shared = retain(url, key, null);
+        if (shared != null) {
+            return shared;
+        }
+        // connecting blocks up to the session timeout, not while holding clients.
+        JEtcdClient created = new JEtcdClient(url);
+        shared = retain(url, key, created);
+        if (((SharedEtcdClient) shared).getClient() != created) {
+            // another registry connected meanwhile.
+            created.close();
+        }
+        return shared;
+    }
+
+    /**
+     * @param created published if no client is shared by key yet, may be null.
+     * @return a reference to the client shared by key, null if none.
+     */
+    private EtcdClient retain(URL url, String key, JEtcdClient created) {
+        synchronized (clients) {
+            SharedClient shared = clients.get(key);
+            if (shared == null) {
+                if (created == null) {
+                    return null;
+                }
+                shared = new SharedClient(key, created);
+                clients.put(key, shared);
+            }
+            shared.references++;
+            SharedClient retained = shared;
+            return new SharedEtcdClient(url, retained.client, () -> release(retained));
+        }
+    }
+
+    /**
+     * the last registry released closes the client.
+     */
+    private void release(SharedClient shared) {
+        synchronized (clients) {
+            if (--shared.references > 0) {
+                return;
+            }
+            clients.remove(shared.key, shared);
+        }
+        shared.client.close();
+    }
+
+    private static String toKey(URL url) {
+        String[] addresses = url.getBackupAddress().split(",");
+        Arrays.sort(addresses);
+        StringBuilder key = new StringBuilder(StringUtils.join(addresses, ","))
+                .append('|').append(Objects.toString(url.getUsername(), ""))
+                .append('|').append(Objects.toString(url.getPassword(), ""));
+        for (String name : CLIENT_KEYS) {
+            appendParameter(key, url, name);
+        }
+        if (url.getParameter(Constants.ETCD3_SNAPSHOT_KEY, false)) {
+            // the default snapshot file is named after the application.
+            appendParameter(key, url, Constants.APPLICATION_KEY);
+        }
+        return key.toString();
+    }
+
+    private static void appendParameter(StringBuilder key, URL url, String name) {
+        String value = url.getParameter(name);
+        if (value != null) {
+            key.append('|').append(name).append('=').append(value);
+        }
+    }
+
+    private static class SharedClient {
+
+        final String key;
+
+        final JEtcdClient client;
+
+        int references;
+
+        SharedClient(String key, JEtcdClient client) {
+            this.key = key;
+            this.client = client;
+        }
     }
 
 }
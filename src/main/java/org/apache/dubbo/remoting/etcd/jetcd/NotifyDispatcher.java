@@ -0,0 +1,132 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.dubbo.remoting.etcd.jetcd;
+
+import org.apache.dubbo.common.logger.Logger;
+import org.apache.dubbo.common.logger.LoggerFactory;
+import org.apache.dubbo.common.utils.ExecutorUtil;
+import org.apache.dubbo.common.utils.NamedThreadFactory;
+import org.apache.dubbo.remoting.etcd.option.Constants;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * delivers children changes on a shared pool of threads.
+ * <p>
+ * changes of the same slot (one per watcher) never run concurrently nor out of order,
+ * changes submitted while a delivery is pending are merged into it, so at most one
+ * task per slot is queued and only the latest state is delivered.
+ */
+public class NotifyDispatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(NotifyDispatcher.class);
+
+    private final ThreadPoolExecutor executor;
+
+    private final AtomicInteger pending = new AtomicInteger();
+
+    public NotifyDispatcher(int threads, int queues) {
+        this.executor = new ThreadPoolExecutor(
+                threads
+                , threads
+                , Constants.DEFAULT_SESSION_TIMEOUT
+                , TimeUnit.MILLISECONDS
+                , new LinkedBlockingQueue<Runnable>(queues)
+                , new NamedThreadFactory("etcd3-notify", true));
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    public Slot newSlot(Consumer<ChildrenDelta> target) {
+        return new Slot(target);
+    }
+
+    /**
+     * the number of slots waiting for delivery.
+     */
+    public int getPending() {
+        return pending.get();
+    }
+
+    public void shutdown() {
+        ExecutorUtil.shutdownNow(executor, 100);
+    }
+
+    public class Slot implements Runnable {
+
+        private final Consumer<ChildrenDelta> target;
+
+        private ChildrenDelta delta;
+
+        private boolean scheduled;
+
+        Slot(Consumer<ChildrenDelta> target) {
+            this.target = target;
+        }
+
+        public void submit(ChildrenDelta changes) {
+            synchronized (this) {
+                if (delta == null) {
+                    delta = changes;
+                } else {
+                    delta.merge(changes);
+                }
+                if (scheduled) {
+                    return;
+                }
+                scheduled = true;
+            }
+
+            pending.incrementAndGet();
+            try {
+                executor.execute(this);
+            } catch (RejectedExecutionException e) {
+                synchronized (this) {
+                    scheduled = false;
+                }
+                pending.decrementAndGet();
+                logger.warn("Failed to dispatch children changes, notify pool is exhausted or closed.", e);
+            }
+        }
+
+        @Override
+        public void run() {
+            pending.decrementAndGet();
+            for (; ; ) {
+                ChildrenDelta changes;
+                synchronized (this) {
+                    changes = delta;
+                    delta = null;
+                    if (changes == null) {
+                        scheduled = false;
+                        return;
+                    }
+                }
+                try {
+                    target.accept(changes);
+                } catch (Throwable t) {
+                    logger.warn("Failed to notify children changes, cause: " + t.getMessage(), t);
+                }
+            }
+        }
+    }
+}
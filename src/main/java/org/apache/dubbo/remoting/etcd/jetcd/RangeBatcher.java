@@ -0,0 +1,175 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.dubbo.remoting.etcd.jetcd;
+
+import org.apache.dubbo.common.utils.ExecutorUtil;
+import org.apache.dubbo.common.utils.NamedThreadFactory;
+
+import io.etcd.jetcd.api.KVGrpc;
+import io.etcd.jetcd.api.RangeRequest;
+import io.etcd.jetcd.api.RangeResponse;
+import io.etcd.jetcd.api.RequestOp;
+import io.etcd.jetcd.api.TxnRequest;
+import io.etcd.jetcd.api.TxnResponse;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.apache.dubbo.remoting.etcd.jetcd.JEtcdClientWrapper.toCompletableFuture;
+
+/**
+ * reads ranges submitted by many callers as multi-range txn requests.
+ * <p>
+ * ranges submitted within the window are read together, at most maxRanges per txn,
+ * txns of the same window are sent in parallel. all ranges of a txn are read at
+ * the same revision, the header revision of the txn.
+ */
+public class RangeBatcher {
+
+    private final Supplier<KVGrpc.KVFutureStub> stub;
+
+    private final int maxRanges;
+
+    private final long window;
+
+    private final ScheduledExecutorService executor;
+
+    private final Object lock = new Object();
+
+    private List<Range> pending = new ArrayList<>();
+
+    private boolean scheduled;
+
+    public RangeBatcher(Supplier<KVGrpc.KVFutureStub> stub, int maxRanges, long window) {
+        this.stub = stub;
+        this.maxRanges = Math.max(1, maxRanges);
+        this.window = Math.max(0, window);
+        this.executor = Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("etcd3-range-batcher", true));
+    }
+
+    public CompletableFuture<RangeResponse> range(RangeRequest request) {
+        CompletableFuture<RangeResponse> future = new CompletableFuture<>();
+        boolean schedule = false;
+        synchronized (lock) {
+            pending.add(new Range(request, future));
+            if (!scheduled) {
+                scheduled = schedule = true;
+            }
+        }
+        if (schedule) {
+            try {
+                executor.schedule(this::flush, window, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                failPending(e);
+            }
+        }
+        return future;
+    }
+
+    private void flush() {
+        List<Range> ranges;
+        synchronized (lock) {
+            ranges = pending;
+            pending = new ArrayList<>();
+            scheduled = false;
+        }
+        for (int from = 0; from < ranges.size(); from += maxRanges) {
+            send(ranges.subList(from, Math.min(ranges.size(), from + maxRanges)));
+        }
+    }
+
+    private void send(List<Range> batch) {
+        try {
+            if (batch.size() == 1) {
+                Range range = batch.get(0);
+                toCompletableFuture(stub.get().range(range.request)).whenComplete((response, e) -> {
+                    if (e != null) {
+                        range.future.completeExceptionally(e);
+                    } else {
+                        range.future.complete(response);
+                    }
+                });
+                return;
+            }
+
+            TxnRequest.Builder txn = TxnRequest.newBuilder();
+            for (Range range : batch) {
+                txn.addSuccess(RequestOp.newBuilder().setRequestRange(range.request));
+            }
+            toCompletableFuture(stub.get().txn(txn.build())).whenComplete((response, e) -> {
+                if (e != null) {
+                    for (Range range : batch) {
+                        range.future.completeExceptionally(e);
+                    }
+                } else {
+                    complete(batch, response);
+                }
+            });
+        } catch (Throwable t) {
+            for (Range range : batch) {
+                range.future.completeExceptionally(t);
+            }
+        }
+    }
+
+    /**
+     * responses of a txn are in the order of its requests.
+     */
+    private static void complete(List<Range> batch, TxnResponse response) {
+        for (int i = 0; i < batch.size(); i++) {
+            // the header of the txn carries the revision all ranges were read at.
+            batch.get(i).future.complete(response.getResponses(i).getResponseRange()
+                    .toBuilder()
+                    .setHeader(response.getHeader())
+                    .build());
+        }
+    }
+
+    private void failPending(Throwable t) {
+        List<Range> failed;
+        synchronized (lock) {
+            failed = pending;
+            pending = new ArrayList<>();
+            scheduled = false;
+        }
+        for (Range range : failed) {
+            range.future.completeExceptionally(t);
+        }
+    }
+
+    public void shutdown() {
+        ExecutorUtil.shutdownNow(executor, 100);
+        failPending(new IllegalStateException("range batcher has been shutdown."));
+    }
+
+    private static class Range {
+
+        final RangeRequest request;
+        final CompletableFuture<RangeResponse> future;
+
+        Range(RangeRequest request, CompletableFuture<RangeResponse> future) {
+            this.request = request;
+            this.future = future;
+        }
+    }
+}
@@ -19,14 +19,24 @@ package org.apache.dubbo.remoting.etcd.jetcd;
 import org.apache.dubbo.common.logger.Logger;
 import org.apache.dubbo.common.logger.LoggerFactory;
 import org.apache.dubbo.remoting.etcd.RetryPolicy;
+import org.apache.dubbo.remoting.etcd.metrics.Counter;
+import org.apache.dubbo.remoting.etcd.metrics.EtcdMetrics;
 import org.apache.dubbo.remoting.etcd.option.OptionUtil;
 
 import io.grpc.Status;
 
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 public class RetryLoops {
 
+    private static final Counter RETRIES = EtcdMetrics.getInstance().counter("etcd3.retries");
+
     private final long startTimeMs = System.currentTimeMillis();
     private boolean isDone = false;
     private int retriedCount = 0;
@@ -46,6 +56,61 @@ public class RetryLoops {
         return result;
     }
 
+    /**
+     * never blocks the caller nor the completing thread, the next attempt is
+     * scheduled on the scheduler after the sleep time of retry policy.
+     */
+    public static <R> CompletableFuture<R> invokeWithRetryAsync(Callable<CompletableFuture<R>> task
+            , RetryPolicy retryPolicy, ScheduledExecutorService scheduler) {
+        CompletableFuture<R> result = new CompletableFuture<>();
+        new RetryLoops().attempt(task, retryPolicy, scheduler, result);
+        return result;
+    }
+
+    private <R> void attempt(Callable<CompletableFuture<R>> task, RetryPolicy retryPolicy
+            , ScheduledExecutorService scheduler, CompletableFuture<R> result) {
+        CompletableFuture<R> future;
+        try {
+            future = task.call();
+        } catch (Throwable t) {
+            future = new CompletableFuture<>();
+            future.completeExceptionally(t);
+        }
+
+        future.whenComplete((r, e) -> {
+            if (e == null) {
+                complete();
+                result.complete(r);
+                return;
+            }
+
+            Throwable cause = unwrap(e);
+            try {
+                int retried = retriedCount++;
+                long elapsed = System.currentTimeMillis() - startTimeMs;
+                if (isRetryException(cause) && retryPolicy.shouldRetry(retried, elapsed, false)) {
+                    RETRIES.increment();
+                    scheduler.schedule(() -> attempt(task, retryPolicy, scheduler, result)
+                            , retryPolicy.getSleepTime(retried, elapsed), TimeUnit.MILLISECONDS);
+                    return;
+                }
+            } catch (RejectedExecutionException ignored) {
+                // scheduler was shutdown, give up retrying.
+            } catch (Throwable t) {
+                logger.warn("Failed to schedule retry, cause: " + t.getMessage(), t);
+            }
+            result.completeExceptionally(cause);
+        });
+    }
+
+    private static Throwable unwrap(Throwable e) {
+        while ((e instanceof CompletionException || e instanceof ExecutionException)
+                && e.getCause() != null) {
+            e = e.getCause();
+        }
+        return e;
+    }
+
     public void fireException(Exception e, RetryPolicy retryPolicy) throws Exception {
 
         if (e instanceof InterruptedException) Thread.currentThread().interrupt();
@@ -54,6 +119,7 @@ public class RetryLoops {
         if (isRetryException(e)
                 && retryPolicy.shouldRetry(retriedCount++, System.currentTimeMillis() - startTimeMs, true)) {
             rethrow = false;
+            RETRIES.increment();
         }
 
         if (rethrow) {
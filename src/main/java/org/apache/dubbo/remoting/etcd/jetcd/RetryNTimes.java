@@ -30,7 +30,7 @@ public class RetryNTimes extends AbstractRetryPolicy {
     }
 
     @Override
-    protected long getSleepTime(int retried, long elapsed) {
+    public long getSleepTime(int retried, long elapsed) {
         return sleepMilliseconds;
     }
 }
@@ -0,0 +1,219 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.dubbo.remoting.etcd.jetcd;
+
+import org.apache.dubbo.common.URL;
+import org.apache.dubbo.common.logger.Logger;
+import org.apache.dubbo.common.logger.LoggerFactory;
+import org.apache.dubbo.common.utils.ConcurrentHashSet;
+import org.apache.dubbo.remoting.etcd.AsyncEtcdClient;
+import org.apache.dubbo.remoting.etcd.ChildListener;
+import org.apache.dubbo.remoting.etcd.EtcdClient;
+import org.apache.dubbo.remoting.etcd.StateListener;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * one registry's reference to a shared client, closing it deletes the ephemeral
+ * paths and removes the state listeners added through it, then releases the client.
+ * <p>
+ * the global lease is shared and kept alive by other registries, so ephemeral
+ * paths left by this one would otherwise stay registered.
+ */
+public class SharedEtcdClient implements EtcdClient, AsyncEtcdClient {
+
+    private static final Logger logger = LoggerFactory.getLogger(SharedEtcdClient.class);
+
+    private final URL url;
+
+    private final JEtcdClient client;
+
+    private final Runnable release;
+
+    private final Set<StateListener> stateListeners = new ConcurrentHashSet<>();
+
+    /**
+     * ephemeral paths created and not deleted yet through this client.
+     */
+    private final Set<String> ephemeralPaths = new ConcurrentHashSet<>();
+
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    SharedEtcdClient(URL url, JEtcdClient client, Runnable release) {
+        this.url = url;
+        this.client = client;
+        this.release = release;
+    }
+
+    @Override
+    public void create(String path) {
+        client.create(path);
+    }
+
+    @Override
+    public long createEphemeral(String path) {
+        ephemeralPaths.add(path);
+        return client.createEphemeral(path);
+    }
+
+    @Override
+    public void delete(String path) {
+        client.delete(path);
+        ephemeralPaths.remove(path);
+    }
+
+    @Override
+    public List<String> getChildren(String path) {
+        return client.getChildren(path);
+    }
+
+    @Override
+    public List<String> addChildListener(String path, ChildListener listener) {
+        return client.addChildListener(path, listener);
+    }
+
+    @Override
+    public List<String> addCategoriesListener(String servicePath, ChildListener listener) {
+        return client.addCategoriesListener(servicePath, listener);
+    }
+
+    @Override
+    public void removeCategoriesListener(String servicePath, ChildListener listener) {
+        client.removeCategoriesListener(servicePath, listener);
+    }
+
+    @Override
+    public <T> T getChildListener(String path, ChildListener listener) {
+        return (T) client.getChildListener(path, listener);
+    }
+
+    @Override
+    public void removeChildListener(String path, ChildListener listener) {
+        client.removeChildListener(path, listener);
+    }
+
+    @Override
+    public void addStateListener(StateListener listener) {
+        stateListeners.add(listener);
+        client.addStateListener(listener);
+    }
+
+    @Override
+    public void removeStateListener(StateListener listener) {
+        stateListeners.remove(listener);
+        client.removeStateListener(listener);
+    }
+
+    @Override
+    public boolean isConnected() {
+        return !closed.get() && client.isConnected();
+    }
+
+    @Override
+    public void close() {
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
+        for (StateListener listener : stateListeners) {
+            client.removeStateListener(listener);
+        }
+        stateListeners.clear();
+
+        for (String path : ephemeralPaths) {
+            client.deleteEphemeralAsync(path).whenComplete((v, e) -> {
+                // the last release closes the client and revokes the global lease, deleting them anyway.
+                if (e != null && client.isConnected()) {
+                    logger.warn("Failed to delete ephemeral path '" + path + "' of closed registry "
+                            + url + ", cause: " + e.getMessage(), e);
+                }
+            });
+        }
+        ephemeralPaths.clear();
+        release.run();
+    }
+
+    @Override
+    public URL getUrl() {
+        return url;
+    }
+
+    JEtcdClient getClient() {
+        return client;
+    }
+
+    @Override
+    public long createLease(long second) {
+        return client.createLease(second);
+    }
+
+    @Override
+    public long createLease(long ttl, long timeout, TimeUnit unit)
+            throws InterruptedException, ExecutionException, TimeoutException {
+        return client.createLease(ttl, timeout, unit);
+    }
+
+    @Override
+    public void revokeLease(long lease) {
+        client.revokeLease(lease);
+    }
+
+    @Override
+    public CompletableFuture<Void> createAsync(String path) {
+        return client.createAsync(path);
+    }
+
+    @Override
+    public CompletableFuture<Long> createEphemeralAsync(String path) {
+        ephemeralPaths.add(path);
+        return client.createEphemeralAsync(path);
+    }
+
+    @Override
+    public CompletableFuture<Void> deleteAsync(String path) {
+        return client.deleteAsync(path).whenComplete((v, e) -> {
+            if (e == null) {
+                ephemeralPaths.remove(path);
+            }
+        });
+    }
+
+    @Override
+    public CompletableFuture<List<String>> getChildrenAsync(String path) {
+        return client.getChildrenAsync(path);
+    }
+
+    @Override
+    public CompletableFuture<List<String>> addChildListenerAsync(String path, ChildListener listener) {
+        return client.addChildListenerAsync(path, listener);
+    }
+
+    @Override
+    public CompletableFuture<Long> createLeaseAsync(long second) {
+        return client.createLeaseAsync(second);
+    }
+
+    @Override
+    public CompletableFuture<Void> revokeLeaseAsync(long lease) {
+        return client.revokeLeaseAsync(lease);
+    }
+}
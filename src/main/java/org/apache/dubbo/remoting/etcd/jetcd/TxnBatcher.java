@@ -0,0 +1,185 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.dubbo.remoting.etcd.jetcd;
+
+import org.apache.dubbo.common.utils.ExecutorUtil;
+import org.apache.dubbo.common.utils.NamedThreadFactory;
+
+import com.google.protobuf.ByteString;
+import io.etcd.jetcd.api.DeleteRangeRequest;
+import io.etcd.jetcd.api.KVGrpc;
+import io.etcd.jetcd.api.PutRequest;
+import io.etcd.jetcd.api.RequestOp;
+import io.etcd.jetcd.api.TxnRequest;
+import io.grpc.ManagedChannel;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.apache.dubbo.remoting.etcd.jetcd.JEtcdClientWrapper.DEFAULT_REQUEST_TIMEOUT;
+
+/**
+ * commits puts and deletes submitted by many callers as multi-op txn requests.
+ * <p>
+ * operations submitted within the window, or while the previous txn is in flight,
+ * are committed together, at most maxOps per txn. a later operation on a path
+ * replaces the pending one of the same batch, etcd rejects a txn touching a key twice.
+ */
+public class TxnBatcher {
+
+    private final Supplier<ManagedChannel> channel;
+
+    private final int maxOps;
+
+    private final long window;
+
+    private final ScheduledExecutorService executor;
+
+    private final Object lock = new Object();
+
+    private Map<ByteString, Op> pending = new LinkedHashMap<>();
+
+    private boolean scheduled;
+
+    public TxnBatcher(Supplier<ManagedChannel> channel, int maxOps, long window) {
+        this.channel = channel;
+        this.maxOps = Math.max(1, maxOps);
+        this.window = Math.max(0, window);
+        this.executor = Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("etcd3-txn-batcher", true));
+    }
+
+    public CompletableFuture<Void> put(String path, String value, long leaseId) {
+        ByteString key = ByteString.copyFromUtf8(path);
+        PutRequest.Builder put = PutRequest.newBuilder()
+                .setKey(key)
+                .setValue(ByteString.copyFromUtf8(value))
+                .setLease(leaseId);
+        return submit(key, RequestOp.newBuilder().setRequestPut(put).build());
+    }
+
+    public CompletableFuture<Void> delete(String path) {
+        ByteString key = ByteString.copyFromUtf8(path);
+        DeleteRangeRequest.Builder delete = DeleteRangeRequest.newBuilder().setKey(key);
+        return submit(key, RequestOp.newBuilder().setRequestDeleteRange(delete).build());
+    }
+
+    private CompletableFuture<Void> submit(ByteString key, RequestOp request) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        boolean schedule = false;
+        synchronized (lock) {
+            Op replaced = pending.put(key, new Op(request, future));
+            if (replaced != null) {
+                /**
+                 * the replaced operation is overwritten by this one anyway.
+                 */
+                future.whenComplete((v, e) -> {
+                    if (e != null) {
+                        replaced.future.completeExceptionally(e);
+                    } else {
+                        replaced.future.complete(null);
+                    }
+                });
+            }
+            if (!scheduled) {
+                scheduled = schedule = true;
+            }
+        }
+        if (schedule) {
+            try {
+                executor.schedule(this::flush, window, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                failPending(e);
+            }
+        }
+        return future;
+    }
+
+    private void flush() {
+        for (; ; ) {
+            List<Op> batch = new ArrayList<>();
+            synchronized (lock) {
+                if (pending.isEmpty()) {
+                    scheduled = false;
+                    return;
+                }
+                Iterator<Op> iterator = pending.values().iterator();
+                while (iterator.hasNext() && batch.size() < maxOps) {
+                    batch.add(iterator.next());
+                    iterator.remove();
+                }
+            }
+            commit(batch);
+        }
+    }
+
+    private void commit(List<Op> batch) {
+        TxnRequest.Builder txn = TxnRequest.newBuilder();
+        for (Op op : batch) {
+            txn.addSuccess(op.request);
+        }
+        try {
+            KVGrpc.newFutureStub(channel.get())
+                    .txn(txn.build())
+                    .get(DEFAULT_REQUEST_TIMEOUT, TimeUnit.MILLISECONDS);
+            for (Op op : batch) {
+                op.future.complete(null);
+            }
+        } catch (Throwable t) {
+            for (Op op : batch) {
+                op.future.completeExceptionally(t);
+            }
+        }
+    }
+
+    private void failPending(Throwable t) {
+        Map<ByteString, Op> failed;
+        synchronized (lock) {
+            failed = pending;
+            pending = new LinkedHashMap<>();
+            scheduled = false;
+        }
+        for (Op op : failed.values()) {
+            op.future.completeExceptionally(t);
+        }
+    }
+
+    public void shutdown() {
+        ExecutorUtil.shutdownNow(executor, 100);
+        failPending(new IllegalStateException("txn batcher has been shutdown."));
+    }
+
+    private static class Op {
+
+        final RequestOp request;
+        final CompletableFuture<Void> future;
+
+        Op(RequestOp request, CompletableFuture<Void> future) {
+            this.request = request;
+            this.future = future;
+        }
+    }
+}
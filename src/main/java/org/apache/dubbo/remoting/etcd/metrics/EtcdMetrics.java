@@ -0,0 +1,216 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.dubbo.remoting.etcd.metrics;
+
+import org.apache.dubbo.common.URL;
+import org.apache.dubbo.common.extension.ExtensionLoader;
+import org.apache.dubbo.common.logger.Logger;
+import org.apache.dubbo.common.logger.LoggerFactory;
+import org.apache.dubbo.common.utils.NamedThreadFactory;
+import org.apache.dubbo.remoting.etcd.option.Constants;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * counters, gauges and latency histograms of the etcd registries in this process.
+ * <p>
+ * instruments are created once and kept in static fields by the instrumented classes,
+ * so recording never looks up a name nor allocates. latencies are in nanoseconds.
+ */
+public final class EtcdMetrics {
+
+    private static final Logger logger = LoggerFactory.getLogger(EtcdMetrics.class);
+
+    private static final OperationListener[] NO_LISTENERS = new OperationListener[0];
+
+    private static final EtcdMetrics INSTANCE = new EtcdMetrics();
+
+    private final ConcurrentMap<String, Counter> counters = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<String, Histogram> histograms = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<String, Operation> operations = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<String, Set<Gauge>> gauges = new ConcurrentHashMap<>();
+
+    private volatile OperationListener[] listeners = NO_LISTENERS;
+
+    /**
+     * exporter name -> interval in milliseconds, every exporter is started once.
+     */
+    private final Map<String, Long> exporting = new ConcurrentHashMap<>();
+
+    private volatile ScheduledExecutorService exportScheduler;
+
+    EtcdMetrics() {
+        ExtensionLoader<OperationListener> loader = ExtensionLoader.getExtensionLoader(OperationListener.class);
+        for (String name : loader.getSupportedExtensions()) {
+            try {
+                addListener(loader.getExtension(name));
+            } catch (Throwable t) {
+                logger.warn("Failed to load etcd operation listener '" + name + "', cause: " + t.getMessage(), t);
+            }
+        }
+    }
+
+    public static EtcdMetrics getInstance() {
+        return INSTANCE;
+    }
+
+    public Counter counter(String name) {
+        return counters.computeIfAbsent(name, k -> new Counter());
+    }
+
+    public Histogram histogram(String name) {
+        return histograms.computeIfAbsent(name, k -> new Histogram());
+    }
+
+    /**
+     * latencies of the operation are kept as histogram of name, failures as counter of name.failures.
+     */
+    public Operation operation(String name) {
+        return operations.computeIfAbsent(name,
+                k -> new Operation(name, histogram(name), this));
+    }
+
+    public void register(String name, Gauge gauge) {
+        gauges.computeIfAbsent(name, k -> new CopyOnWriteArraySet<>()).add(gauge);
+    }
+
+    public void unregister(String name, Gauge gauge) {
+        Set<Gauge> registered = gauges.get(name);
+        if (registered != null) {
+            registered.remove(gauge);
+        }
+    }
+
+    public synchronized void addListener(OperationListener listener) {
+        List<OperationListener> current = new ArrayList<>(Arrays.asList(listeners));
+        current.add(listener);
+        listeners = current.toArray(NO_LISTENERS);
+    }
+
+    public synchronized void removeListener(OperationListener listener) {
+        List<OperationListener> current = new ArrayList<>(Arrays.asList(listeners));
+        current.remove(listener);
+        listeners = current.toArray(NO_LISTENERS);
+    }
+
+    OperationListener[] getListeners() {
+        return listeners;
+    }
+
+    /**
+     * a listener failing to link, eg. a class missing in this jvm, fails every time
+     * and is removed on the first failure.
+     */
+    void listenerFailed(OperationListener listener, Throwable t) {
+        if (t instanceof LinkageError) {
+            removeListener(listener);
+            logger.warn("Removed etcd operation listener " + listener.getClass().getName()
+                    + " not supported by this jvm, cause: " + t, t);
+            return;
+        }
+        logger.warn("Failed to notify etcd operation listener " + listener.getClass().getName()
+                + ", cause: " + t.getMessage(), t);
+    }
+
+    public SortedMap<String, Long> getCounters() {
+        SortedMap<String, Long> values = new TreeMap<>();
+        for (Map.Entry<String, Counter> entry : counters.entrySet()) {
+            values.put(entry.getKey(), entry.getValue().get());
+        }
+        return values;
+    }
+
+    /**
+     * the sum of gauges registered under every name.
+     */
+    public SortedMap<String, Long> getGauges() {
+        SortedMap<String, Long> values = new TreeMap<>();
+        for (Map.Entry<String, Set<Gauge>> entry : gauges.entrySet()) {
+            long sum = 0;
+            for (Gauge gauge : entry.getValue()) {
+                try {
+                    sum += gauge.value();
+                } catch (Throwable t) {
+                    logger.warn("Failed to read etcd gauge '" + entry.getKey() + "', cause: " + t.getMessage(), t);
+                }
+            }
+            values.put(entry.getKey(), sum);
+        }
+        return values;
+    }
+
+    public SortedMap<String, Histogram.Snapshot> getHistograms() {
+        SortedMap<String, Histogram.Snapshot> values = new TreeMap<>();
+        for (Map.Entry<String, Histogram> entry : histograms.entrySet()) {
+            values.put(entry.getKey(), entry.getValue().snapshot());
+        }
+        return values;
+    }
+
+    /**
+     * start the exporters named by etcd3.metrics.exporter of url, if not started yet.
+     */
+    public void export(URL url) {
+        String[] names = url.getParameter(Constants.ETCD3_METRICS_EXPORTER_KEY, new String[0]);
+        if (names.length == 0) {
+            return;
+        }
+        long interval = Math.max(1000, url.getParameter(Constants.ETCD3_METRICS_EXPORT_INTERVAL_KEY
+                , Constants.DEFAULT_ETCD3_METRICS_EXPORT_INTERVAL));
+        ExtensionLoader<MetricsExporter> loader = ExtensionLoader.getExtensionLoader(MetricsExporter.class);
+        for (String name : names) {
+            if (exporting.putIfAbsent(name, interval) != null) {
+                continue;
+            }
+            try {
+                MetricsExporter exporter = loader.getExtension(name);
+                scheduler().scheduleWithFixedDelay(() -> {
+                    try {
+                        exporter.export(this);
+                    } catch (Throwable t) {
+                        logger.warn("Failed to export etcd metrics by '" + name + "', cause: " + t.getMessage(), t);
+                    }
+                }, interval, interval, TimeUnit.MILLISECONDS);
+            } catch (Throwable t) {
+                exporting.remove(name);
+                logger.warn("Failed to start etcd metrics exporter '" + name + "', cause: " + t.getMessage(), t);
+            }
+        }
+    }
+
+    private synchronized ScheduledExecutorService scheduler() {
+        if (exportScheduler == null) {
+            exportScheduler = Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("etcd3-metrics-export", true));
+        }
+        return exportScheduler;
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.dubbo.remoting.etcd.metrics;
+
+import org.apache.dubbo.common.extension.Activate;
+import org.apache.dubbo.common.utils.StringUtils;
+import org.apache.dubbo.remoting.Channel;
+import org.apache.dubbo.remoting.telnet.TelnetHandler;
+import org.apache.dubbo.remoting.telnet.support.Help;
+
+import java.util.Map;
+
+/**
+ * shows the metrics of etcd registries by telnet or qos, eg. "etcd" or "etcd etcd3.kv".
+ */
+@Activate
+@Help(parameter = "[prefix]", summary = "Show metrics of etcd registries.",
+        detail = "Show counters, gauges and latencies of etcd registries, only those starting with prefix if given.")
+public class EtcdMetricsTelnetHandler implements TelnetHandler {
+
+    @Override
+    public String telnet(Channel channel, String message) {
+        String prefix = StringUtils.isEmpty(message) ? "" : message.trim();
+        EtcdMetrics metrics = EtcdMetrics.getInstance();
+        StringBuilder buf = new StringBuilder();
+        for (Map.Entry<String, Long> entry : metrics.getCounters().entrySet()) {
+            if (entry.getKey().startsWith(prefix)) {
+                append(buf, entry.getKey(), String.valueOf(entry.getValue()));
+            }
+        }
+        for (Map.Entry<String, Long> entry : metrics.getGauges().entrySet()) {
+            if (entry.getKey().startsWith(prefix)) {
+                append(buf, entry.getKey(), String.valueOf(entry.getValue()));
+            }
+        }
+        for (Map.Entry<String, Histogram.Snapshot> entry : metrics.getHistograms().entrySet()) {
+            if (entry.getKey().startsWith(prefix)) {
+                append(buf, entry.getKey(), LogMetricsExporter.format(entry.getValue()));
+            }
+        }
+        return buf.length() == 0 ? "No etcd metrics" + (prefix.isEmpty() ? "" : " starting with " + prefix) + "." : buf.toString();
+    }
+
+    private static void append(StringBuilder buf, String name, String value) {
+        if (buf.length() > 0) {
+            buf.append("\r\n");
+        }
+        buf.append(name).append(" = ").append(value);
+    }
+}
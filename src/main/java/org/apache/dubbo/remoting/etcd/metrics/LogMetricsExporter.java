@@ -0,0 +1,60 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.dubbo.remoting.etcd.metrics;
+
+import org.apache.dubbo.common.logger.Logger;
+import org.apache.dubbo.common.logger.LoggerFactory;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * writes the metrics to the log, one line per metric.
+ */
+public class LogMetricsExporter implements MetricsExporter {
+
+    private static final Logger logger = LoggerFactory.getLogger(LogMetricsExporter.class);
+
+    @Override
+    public void export(EtcdMetrics metrics) {
+        if (!logger.isInfoEnabled()) {
+            return;
+        }
+        for (Map.Entry<String, Long> entry : metrics.getCounters().entrySet()) {
+            logger.info("etcd metrics counter " + entry.getKey() + "=" + entry.getValue());
+        }
+        for (Map.Entry<String, Long> entry : metrics.getGauges().entrySet()) {
+            logger.info("etcd metrics gauge " + entry.getKey() + "=" + entry.getValue());
+        }
+        for (Map.Entry<String, Histogram.Snapshot> entry : metrics.getHistograms().entrySet()) {
+            logger.info("etcd metrics latency " + entry.getKey() + " " + format(entry.getValue()));
+        }
+    }
+
+    /**
+     * count and percentiles in milliseconds of nanosecond latencies.
+     */
+    public static String format(Histogram.Snapshot snapshot) {
+        return String.format("count=%d mean=%.3fms p50=%.3fms p99=%.3fms max=%.3fms", snapshot.getCount()
+                , millis(snapshot.getMean()), millis(snapshot.getPercentile(0.5))
+                , millis(snapshot.getPercentile(0.99)), millis(snapshot.getMax()));
+    }
+
+    private static double millis(double nanos) {
+        return nanos / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+}
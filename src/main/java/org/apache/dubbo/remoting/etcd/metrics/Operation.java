@@ -0,0 +1,83 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.dubbo.remoting.etcd.metrics;
+
+import java.util.function.BiConsumer;
+
+/**
+ * latencies and failures of one kind of operation, completions are passed to the
+ * {@link OperationListener}s as well.
+ */
+public final class Operation {
+
+    private final String name;
+
+    private final Histogram latency;
+
+    private final EtcdMetrics metrics;
+
+    Operation(String name, Histogram latency, EtcdMetrics metrics) {
+        this.name = name;
+        this.latency = latency;
+        this.metrics = metrics;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @param startNanos {@link System#nanoTime()} when the operation started.
+     */
+    public void record(String path, int size, long revision, long startNanos) {
+        complete(path, size, revision, startNanos, null);
+    }
+
+    /**
+     * failures are counted as name.failures, the counter shows up on first failure.
+     */
+    public void fail(String path, long startNanos, Throwable error) {
+        metrics.counter(name + ".failures").increment();
+        complete(path, 0, 0, startNanos, error);
+    }
+
+    /**
+     * records the completion of a future, for operations without size nor revision.
+     */
+    public <T> BiConsumer<T, Throwable> recorder(String path, long startNanos) {
+        return (result, error) -> {
+            if (error == null) {
+                record(path, 0, 0, startNanos);
+            } else {
+                fail(path, startNanos, error);
+            }
+        };
+    }
+
+    private void complete(String path, int size, long revision, long startNanos, Throwable error) {
+        long duration = System.nanoTime() - startNanos;
+        latency.record(duration);
+        OperationListener[] listeners = metrics.getListeners();
+        for (OperationListener listener : listeners) {
+            try {
+                listener.onOperation(name, path, size, revision, duration, error);
+            } catch (Throwable t) {
+                metrics.listenerFailed(listener, t);
+            }
+        }
+    }
+}
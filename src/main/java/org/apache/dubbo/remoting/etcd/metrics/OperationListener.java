@@ -0,0 +1,37 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.dubbo.remoting.etcd.metrics;
+
+import org.apache.dubbo.common.extension.SPI;
+
+/**
+ * notified of every operation completed, on the thread completing it, so
+ * implementations must be cheap and never block. all extensions are loaded.
+ */
+@SPI
+public interface OperationListener {
+
+    /**
+     * @param operation the name of operation, eg. etcd3.kv.range.
+     * @param path      the key or path operated, null if none.
+     * @param size      the number of keys or children involved, 0 if unknown.
+     * @param revision  the etcd revision observed, 0 if unknown.
+     * @param duration  nanoseconds the operation took.
+     * @param error     the cause if failed, otherwise null.
+     */
+    void onOperation(String operation, String path, int size, long revision, long duration, Throwable error);
+}
@@ -34,4 +34,136 @@ public class Constants extends org.apache.dubbo.common.Constants {
     public static final String DEFAULT_ETCD3_NOTIFY_QUEUES_KEY = "etcd3.notify.queues";
 
     public static final int DEFAULT_GRPC_QUEUES = 300_0000;
+
+    public static final String ETCD3_WATCH_STREAMS_KEY = "etcd3.watch.streams";
+
+    public static final int DEFAULT_ETCD3_WATCH_STREAMS = 1;
+
+    public static final String ETCD3_RANGE_PAGE_SIZE_KEY = "etcd3.range.pagesize";
+
+    public static final int DEFAULT_ETCD3_RANGE_PAGE_SIZE = 1000;
+
+    public static final String ETCD3_TXN_BATCH_SIZE_KEY = "etcd3.txn.batch.size";
+
+    /**
+     * etcd limits the operations of one txn by --max-txn-ops, 128 by default.
+     */
+    public static final int DEFAULT_ETCD3_TXN_BATCH_SIZE = 128;
+
+    public static final String ETCD3_TXN_BATCH_WINDOW_KEY = "etcd3.txn.batch.window";
+
+    public static final int DEFAULT_ETCD3_TXN_BATCH_WINDOW = 1;
+
+    /**
+     * children listings submitted together are read by one txn, each range of it
+     * returns up to a page of keys, so the batch is kept small.
+     */
+    public static final String ETCD3_RANGE_BATCH_SIZE_KEY = "etcd3.range.batch.size";
+
+    public static final int DEFAULT_ETCD3_RANGE_BATCH_SIZE = 16;
+
+    public static final String ETCD3_RANGE_BATCH_WINDOW_KEY = "etcd3.range.batch.window";
+
+    public static final int DEFAULT_ETCD3_RANGE_BATCH_WINDOW = 1;
+
+    /**
+     * fixed (default) sleeps etcd3.retry.sleep between retries, exponential backs off with
+     * jitter up to etcd3.retry.max.sleep.
+     */
+    public static final String ETCD3_RETRY_POLICY_KEY = "etcd3.retry.policy";
+
+    public static final String ETCD3_RETRY_POLICY_FIXED = "fixed";
+
+    public static final String ETCD3_RETRY_POLICY_EXPONENTIAL = "exponential";
+
+    public static final String DEFAULT_ETCD3_RETRY_POLICY = ETCD3_RETRY_POLICY_FIXED;
+
+    public static final String ETCD3_RETRY_TIMES_KEY = "etcd3.retry.times";
+
+    public static final int DEFAULT_ETCD3_RETRY_TIMES = 1;
+
+    public static final String ETCD3_RETRY_SLEEP_KEY = "etcd3.retry.sleep";
+
+    public static final int DEFAULT_ETCD3_RETRY_SLEEP = 1000;
+
+    public static final String ETCD3_RETRY_MAX_SLEEP_KEY = "etcd3.retry.max.sleep";
+
+    public static final int DEFAULT_ETCD3_RETRY_MAX_SLEEP = 10_000;
+
+    /**
+     * the total time retrying may take, not bounded if not positive.
+     */
+    public static final String ETCD3_RETRY_DEADLINE_KEY = "etcd3.retry.deadline";
+
+    public static final int DEFAULT_ETCD3_RETRY_DEADLINE = 0;
+
+    /**
+     * keep the children of watched paths in a local file, so restarts are
+     * served from it and resume watching from the stored revision.
+     */
+    public static final String ETCD3_SNAPSHOT_KEY = "etcd3.snapshot";
+
+    public static final String ETCD3_SNAPSHOT_FILE_KEY = "etcd3.snapshot.file";
+
+    public static final String ETCD3_SNAPSHOT_PERIOD_KEY = "etcd3.snapshot.period";
+
+    public static final int DEFAULT_ETCD3_SNAPSHOT_PERIOD = 5000;
+
+    /**
+     * watch the service path once for subscriptions of several categories, category=*
+     * subscriptions always do, as no child below the service path is wasted for them.
+     */
+    public static final String ETCD3_SERVICE_WATCH_KEY = "etcd3.service.watch";
+
+    /**
+     * keep an index key per service, so any interface subscribers watch the index
+     * instead of the whole root, all registries of the cluster should enable it.
+     */
+    public static final String ETCD3_SERVICE_INDEX_KEY = "etcd3.service.index";
+
+    /**
+     * the index of root /dubbo is kept below /.index/dubbo, out of root.
+     */
+    public static final String ETCD3_SERVICE_INDEX_ROOT = "/.index";
+
+    public static final String ETCD3_URL_CACHE_SIZE_KEY = "etcd3.url.cache.size";
+
+    public static final int DEFAULT_ETCD3_URL_CACHE_SIZE = 100_000;
+
+    /**
+     * registries of the same endpoints, credentials and client options (eg. session timeout,
+     * retry policy, watch streams) share one client, its connection, lease and threads.
+     */
+    public static final String ETCD3_CLIENT_SHARE_KEY = "etcd3.client.share";
+
+    public static final boolean DEFAULT_ETCD3_CLIENT_SHARE = true;
+
+    /**
+     * serializable reads are served by any member of the cluster instead of going through
+     * the leader, listings may be stale but watching from their revision catches up.
+     */
+    public static final String ETCD3_READ_CONSISTENCY_KEY = "etcd3.read.consistency";
+
+    public static final String ETCD3_READ_CONSISTENCY_LINEARIZABLE = "linearizable";
+
+    public static final String ETCD3_READ_CONSISTENCY_SERIALIZABLE = "serializable";
+
+    public static final String DEFAULT_ETCD3_READ_CONSISTENCY = ETCD3_READ_CONSISTENCY_LINEARIZABLE;
+
+    /**
+     * threads subscribing the services found by an any interface subscription in parallel.
+     */
+    public static final String ETCD3_BOOTSTRAP_THREADS_KEY = "etcd3.bootstrap.threads";
+
+    public static final int DEFAULT_ETCD3_BOOTSTRAP_THREADS = 16;
+
+    /**
+     * comma separated names of {@link org.apache.dubbo.remoting.etcd.metrics.MetricsExporter}s
+     * publishing metrics of the registry, none by default.
+     */
+    public static final String ETCD3_METRICS_EXPORTER_KEY = "etcd3.metrics.exporter";
+
+    public static final String ETCD3_METRICS_EXPORT_INTERVAL_KEY = "etcd3.metrics.export.interval";
+
+    public static final long DEFAULT_ETCD3_METRICS_EXPORT_INTERVAL = 60 * 1000;
 }
@@ -22,6 +22,7 @@ import org.apache.dubbo.common.logger.Logger;
 import org.apache.dubbo.common.logger.LoggerFactory;
 import org.apache.dubbo.common.utils.ConcurrentHashSet;
 import org.apache.dubbo.common.utils.StringUtils;
+import org.apache.dubbo.remoting.etcd.AsyncEtcdClient;
 import org.apache.dubbo.remoting.etcd.ChildListener;
 import org.apache.dubbo.remoting.etcd.EtcdClient;
 import org.apache.dubbo.remoting.etcd.StateListener;
@@ -29,10 +30,11 @@ import org.apache.dubbo.remoting.etcd.StateListener;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 
-public abstract class AbstractEtcdClient<WatcherListener> implements EtcdClient {
+public abstract class AbstractEtcdClient<WatcherListener> implements EtcdClient, AsyncEtcdClient {
 
     protected static final Logger logger = LoggerFactory.getLogger(AbstractEtcdClient.class);
 
@@ -40,7 +42,13 @@ public abstract class AbstractEtcdClient<WatcherListener> implements EtcdClient
 
     private final Set<StateListener> stateListeners = new ConcurrentHashSet<>();
 
+    /**
+     * persistent paths known to exist, they are not written or checked again.
+     */
+    private final Set<String> persistentPaths = new ConcurrentHashSet<>();
+
     private final ConcurrentMap<String, ConcurrentMap<ChildListener, WatcherListener>> childListeners = new ConcurrentHashMap<String, ConcurrentMap<ChildListener, WatcherListener>>();
+    private final ConcurrentMap<String, ConcurrentMap<ChildListener, WatcherListener>> categoriesListeners = new ConcurrentHashMap<String, ConcurrentMap<ChildListener, WatcherListener>>();
     private final List<String> categroies = Arrays.asList(Constants.PROVIDERS_CATEGORY
             , Constants.CONSUMERS_CATEGORY
             , Constants.ROUTERS_CATEGORY
@@ -57,8 +65,11 @@ public abstract class AbstractEtcdClient<WatcherListener> implements EtcdClient
 
     public void create(String path) {
         String fixedPath = fixNamespace(path);
+        if (persistentPaths.contains(fixedPath)) {
+            return;
+        }
         createParentIfAbsent(fixedPath);
-        doCreatePersistent(fixedPath);
+        createPersistentIfAbsent(fixedPath);
     }
 
     public long createEphemeral(String path) {
@@ -67,6 +78,26 @@ public abstract class AbstractEtcdClient<WatcherListener> implements EtcdClient
         return doCreateEphemeral(path);
     }
 
+    public CompletableFuture<Void> createAsync(String path) {
+        String fixedPath = fixNamespace(path);
+        if (persistentPaths.contains(fixedPath)) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return createParentIfAbsentAsync(fixedPath)
+                .thenCompose(v -> createPersistentIfAbsentAsync(fixedPath));
+    }
+
+    public CompletableFuture<Long> createEphemeralAsync(String path) {
+        String fixedPath = fixNamespace(path);
+        return createParentIfAbsentAsync(fixedPath)
+                .thenCompose(v -> doCreateEphemeralAsync(path));
+    }
+
+    public CompletableFuture<Void> deleteAsync(String path) {
+        persistentPaths.remove(fixNamespace(path));
+        return doDeleteAsync(path);
+    }
+
     public void addStateListener(StateListener listener) {
         stateListeners.add(listener);
     }
@@ -93,6 +124,32 @@ public abstract class AbstractEtcdClient<WatcherListener> implements EtcdClient
         return addChildWatcherListener(path, targetListener);
     }
 
+    public CompletableFuture<List<String>> addChildListenerAsync(String path, final ChildListener listener) {
+        ConcurrentMap<ChildListener, WatcherListener> listeners = childListeners.computeIfAbsent(path
+                , k -> new ConcurrentHashMap<ChildListener, WatcherListener>());
+        WatcherListener targetListener = listeners.computeIfAbsent(listener
+                , k -> createChildWatcherListener(path, listener));
+        return addChildWatcherListenerAsync(path, targetListener);
+    }
+
+    public List<String> addCategoriesListener(String servicePath, final ChildListener listener) {
+        ConcurrentMap<ChildListener, WatcherListener> listeners = categoriesListeners.computeIfAbsent(servicePath
+                , k -> new ConcurrentHashMap<ChildListener, WatcherListener>());
+        WatcherListener targetListener = listeners.computeIfAbsent(listener
+                , k -> createCategoriesWatcherListener(servicePath, listener));
+        return addChildWatcherListener(servicePath, targetListener);
+    }
+
+    public void removeCategoriesListener(String servicePath, ChildListener listener) {
+        ConcurrentMap<ChildListener, WatcherListener> listeners = categoriesListeners.get(servicePath);
+        if (listeners != null) {
+            WatcherListener targetListener = listeners.remove(listener);
+            if (targetListener != null) {
+                removeChildWatcherListener(servicePath, targetListener);
+            }
+        }
+    }
+
     public WatcherListener getChildListener(String path, ChildListener listener) {
         ConcurrentMap<ChildListener, WatcherListener> listeners = childListeners.get(path);
         if (listeners == null) {
@@ -116,7 +173,18 @@ public abstract class AbstractEtcdClient<WatcherListener> implements EtcdClient
         }
     }
 
+    public void delete(String path) {
+        persistentPaths.remove(fixNamespace(path));
+        doDelete(path);
+    }
+
     protected void stateChanged(int state) {
+        if (state == StateListener.CONNECTED) {
+            /**
+             * paths may be lost while disconnected, create them again on demand.
+             */
+            persistentPaths.clear();
+        }
         for (StateListener sessionListener : getSessionListeners()) {
             sessionListener.stateChanged(state);
         }
@@ -130,20 +198,53 @@ public abstract class AbstractEtcdClient<WatcherListener> implements EtcdClient
     }
 
     protected void createParentIfAbsent(String fixedPath) {
+        String parentPath = parentOf(fixedPath);
+        if (parentPath != null) {
+            createPersistentIfAbsent(parentPath);
+        }
+    }
+
+    protected CompletableFuture<Void> createParentIfAbsentAsync(String fixedPath) {
+        String parentPath = parentOf(fixedPath);
+        if (parentPath != null) {
+            return createPersistentIfAbsentAsync(parentPath);
+        }
+        return CompletableFuture.completedFuture(null);
+    }
+
+    /**
+     * the service path of a category or category child, null if none.
+     */
+    private String parentOf(String fixedPath) {
         int i = fixedPath.lastIndexOf('/');
         if (i > 0) {
             String parentPath = fixedPath.substring(0, i);
             if (categroies.stream().anyMatch(c -> fixedPath.endsWith(c))) {
-                if (!checkExists(parentPath)) {
-                    this.doCreatePersistent(parentPath);
-                }
+                return parentPath;
             } else if (categroies.stream().anyMatch(c -> parentPath.endsWith(c))) {
-                String grandfather = parentPath.substring(0, parentPath.lastIndexOf('/'));
-                if (!checkExists(grandfather)) {
-                    this.doCreatePersistent(grandfather);
-                }
+                return parentPath.substring(0, parentPath.lastIndexOf('/'));
             }
         }
+        return null;
+    }
+
+    /**
+     * doCreatePersistent never overwrites an existing path, so it is
+     * called at most once per path until the connection is recovered.
+     */
+    protected void createPersistentIfAbsent(String fixedPath) {
+        if (!persistentPaths.contains(fixedPath)) {
+            doCreatePersistent(fixedPath);
+            persistentPaths.add(fixedPath);
+        }
+    }
+
+    protected CompletableFuture<Void> createPersistentIfAbsentAsync(String fixedPath) {
+        if (persistentPaths.contains(fixedPath)) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return doCreatePersistentAsync(fixedPath)
+                .thenRun(() -> persistentPaths.add(fixedPath));
     }
 
     public void close() {
@@ -164,14 +265,24 @@ public abstract class AbstractEtcdClient<WatcherListener> implements EtcdClient
 
     public abstract long doCreateEphemeral(String path);
 
-    public abstract void delete(String path);
+    public abstract void doDelete(String path);
+
+    public abstract CompletableFuture<Void> doCreatePersistentAsync(String path);
+
+    public abstract CompletableFuture<Long> doCreateEphemeralAsync(String path);
+
+    public abstract CompletableFuture<Void> doDeleteAsync(String path);
 
     public abstract boolean checkExists(String path);
 
     public abstract WatcherListener createChildWatcherListener(String path, ChildListener listener);
 
+    public abstract WatcherListener createCategoriesWatcherListener(String servicePath, ChildListener listener);
+
     public abstract List<String> addChildWatcherListener(String path, WatcherListener listener);
 
+    public abstract CompletableFuture<List<String>> addChildWatcherListenerAsync(String path, WatcherListener listener);
+
     public abstract void removeChildWatcherListener(String path, WatcherListener listener);
 
 }
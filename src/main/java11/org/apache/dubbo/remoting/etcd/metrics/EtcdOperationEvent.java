@@ -0,0 +1,60 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.dubbo.remoting.etcd.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * committed once an operation completes, so the start time of event is the completion
+ * and the latency of operation is carried as a field instead of the event duration.
+ */
+@Name(EtcdOperationEvent.NAME)
+@Label("Etcd Registry Operation")
+@Category({"Dubbo", "Etcd Registry"})
+@Description("A completed etcd client, watch or notify operation of the etcd registry")
+@StackTrace(false)
+final class EtcdOperationEvent extends Event {
+
+    static final String NAME = "org.apache.dubbo.etcd.Operation";
+
+    @Label("Operation")
+    @Description("The name of operation, eg. etcd3.kv.range")
+    String operation;
+
+    @Label("Path")
+    String path;
+
+    @Label("Size")
+    @Description("The number of keys or children involved")
+    int size;
+
+    @Label("Revision")
+    long revision;
+
+    @Label("Latency")
+    @Timespan(Timespan.NANOSECONDS)
+    long latency;
+
+    @Label("Error")
+    String error;
+}
@@ -0,0 +1,52 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.dubbo.remoting.etcd.metrics;
+
+/**
+ * emits a {@link EtcdOperationEvent} per operation when enabled in the recording, eg.
+ * -XX:StartFlightRecording with org.apache.dubbo.etcd.Operation#enabled=true.
+ */
+public class JfrOperationListener implements OperationListener {
+
+    /**
+     * fails on a jvm without flight recorder, eg. java 8 before 8u262, so the extension is not loaded.
+     */
+    public JfrOperationListener() {
+        try {
+            Class.forName("jdk.jfr.Event", false, JfrOperationListener.class.getClassLoader());
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException("jdk flight recorder is not available in this jvm", e);
+        }
+    }
+
+    @Override
+    public void onOperation(String operation, String path, int size, long revision, long duration, Throwable error) {
+        EtcdOperationEvent event = new EtcdOperationEvent();
+        if (!event.isEnabled()) {
+            return;
+        }
+        event.operation = operation;
+        event.path = path;
+        event.size = size;
+        event.revision = revision;
+        event.latency = duration;
+        if (error != null) {
+            event.error = error.getClass().getName() + ": " + error.getMessage();
+        }
+        event.commit();
+    }
+}
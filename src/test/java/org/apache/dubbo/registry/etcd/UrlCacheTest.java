@@ -0,0 +1,70 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.dubbo.registry.etcd;
+
+import org.apache.dubbo.common.URL;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class UrlCacheTest {
+
+    private static final String A = URL.encode("dubbo://10.0.0.1:20880/org.apache.dubbo.DemoService?version=1.0");
+
+    private static final String B = URL.encode("dubbo://10.0.0.2:20880/org.apache.dubbo.DemoService?version=1.0");
+
+    @Test
+    public void test_references() {
+        UrlCache cache = new UrlCache(10);
+        UrlCache.Entry first = cache.acquire(A);
+        UrlCache.Entry second = cache.acquire(A);
+
+        Assert.assertTrue(first.isRetained());
+        Assert.assertSame(first.getUrl(), second.getUrl());
+        Assert.assertEquals("10.0.0.1", first.getUrl().getHost());
+        Assert.assertSame(first.getUrl(), cache.get(A));
+
+        cache.release(A);
+        Assert.assertEquals(1, cache.size());
+        cache.release(A);
+        Assert.assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void test_not_url() {
+        UrlCache cache = new UrlCache(10);
+        Assert.assertNull(cache.acquire("not-an-url").getUrl());
+        Assert.assertNull(cache.get("not-an-url"));
+    }
+
+    @Test
+    public void test_capacity() {
+        UrlCache cache = new UrlCache(1);
+        Assert.assertTrue(cache.acquire(A).isRetained());
+
+        UrlCache.Entry overflow = cache.acquire(B);
+        Assert.assertFalse(overflow.isRetained());
+        Assert.assertEquals("10.0.0.2", overflow.getUrl().getHost());
+        Assert.assertEquals(1, cache.size());
+
+        // the overflow acquire held no reference, only the cached one is counted.
+        cache.release(A);
+        Assert.assertTrue(cache.acquire(B).isRetained());
+        Assert.assertEquals(1, cache.size());
+        Assert.assertNotSame(overflow.getUrl(), cache.get(B));
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.dubbo.remoting.etcd.jetcd;
+
+import com.google.protobuf.ByteString;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ChildPathMatcherTest {
+
+    private static String match(ChildPathMatcher matcher, String key) {
+        return matcher.match(ByteString.copyFromUtf8(key));
+    }
+
+    @Test
+    public void test_direct_child() {
+        ChildPathMatcher matcher = new ChildPathMatcher("/a/providers", 1);
+        Assert.assertEquals("/a/providers/", matcher.getPrefix().toStringUtf8());
+        Assert.assertEquals("dubbo%3A%2F%2F10.0.0.1", match(matcher, "/a/providers/dubbo%3A%2F%2F10.0.0.1"));
+        Assert.assertEquals("x", match(matcher, "/a/providers/x"));
+    }
+
+    @Test
+    public void test_grandchild() {
+        ChildPathMatcher children = new ChildPathMatcher("/a", 1);
+        Assert.assertNull(match(children, "/a/providers/x"));
+        Assert.assertEquals("providers", match(children, "/a/providers"));
+
+        ChildPathMatcher grandchildren = new ChildPathMatcher("/a", 2);
+        Assert.assertEquals("providers/x", match(grandchildren, "/a/providers/x"));
+        Assert.assertNull(match(grandchildren, "/a/providers"));
+        Assert.assertNull(match(grandchildren, "/a/providers/x/y"));
+    }
+
+    @Test
+    public void test_prefix_key_itself() {
+        ChildPathMatcher matcher = new ChildPathMatcher("/a/providers", 1);
+        Assert.assertNull(match(matcher, "/a/providers"));
+        Assert.assertNull(match(matcher, "/a/providers/"));
+        Assert.assertNull(match(matcher, "/a"));
+    }
+
+    @Test
+    public void test_trailing_separator() {
+        ChildPathMatcher matcher = new ChildPathMatcher("/a/providers", 1);
+        Assert.assertNull(match(matcher, "/a/providers/x/"));
+
+        ChildPathMatcher grandchildren = new ChildPathMatcher("/a", 2);
+        Assert.assertNull(match(grandchildren, "/a/providers/"));
+        Assert.assertNull(match(grandchildren, "/a//x"));
+        Assert.assertNull(match(grandchildren, "/a/providers/x/"));
+    }
+
+    @Test
+    public void test_sibling_sharing_prefix() {
+        ChildPathMatcher matcher = new ChildPathMatcher("/a/providers", 1);
+        Assert.assertNull(match(matcher, "/a/providersX"));
+        Assert.assertNull(match(matcher, "/a/providersX/x"));
+        Assert.assertNull(match(matcher, "/a/provider/x"));
+    }
+}
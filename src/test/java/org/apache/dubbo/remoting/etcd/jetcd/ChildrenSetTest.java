@@ -0,0 +1,113 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.dubbo.remoting.etcd.jetcd;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+public class ChildrenSetTest {
+
+    @Test
+    public void test_versions_are_immutable() {
+        ChildrenSet empty = ChildrenSet.empty();
+        ChildrenSet one = empty.put("provider1", 1);
+        ChildrenSet two = one.put("provider2", 2);
+
+        Assert.assertEquals(0, empty.size());
+        Assert.assertEquals(1, one.size());
+        Assert.assertEquals(2, two.size());
+        Assert.assertFalse(one.contains("provider2"));
+        Assert.assertTrue(two.contains("provider2"));
+
+        // unchanged sets are returned as is.
+        Assert.assertSame(two, two.put("provider1", 1));
+        Assert.assertSame(two, two.delete("provider3", 3));
+        Assert.assertSame(two.asList(), two.asList());
+
+        ChildrenSet removed = two.delete("provider1", 3);
+        Assert.assertEquals(1, removed.size());
+        Assert.assertTrue(two.contains("provider1"));
+        Assert.assertFalse(removed.contains("provider1"));
+    }
+
+    @Test
+    public void test_stale_events_ignored() {
+        ChildrenSet listed = ChildrenSet.of(Arrays.asList("provider1", "provider2"), 10);
+        Assert.assertEquals(10, listed.getRevision());
+        Assert.assertEquals(10, listed.getModRevision("provider1"));
+
+        // changes already contained in the listing.
+        Assert.assertSame(listed, listed.delete("provider1", 9));
+        Assert.assertSame(listed, listed.put("provider3", 10));
+
+        ChildrenSet updated = listed.put("provider1", 12);
+        Assert.assertEquals(2, updated.size());
+        Assert.assertEquals(12, updated.getModRevision("provider1"));
+
+        // a delete older than the latest put never removes the child.
+        Assert.assertSame(updated, updated.delete("provider1", 11));
+        Assert.assertSame(updated, updated.put("provider1", 11));
+        Assert.assertFalse(updated.delete("provider1", 13).contains("provider1"));
+        Assert.assertEquals(-1, updated.getModRevision("provider3"));
+    }
+
+    @Test
+    public void test_hash_collision() {
+        // "Aa" and "BB" share the same hash code.
+        ChildrenSet set = ChildrenSet.of(Arrays.asList("Aa", "BB", "C#", "Aa"), 1);
+        Assert.assertEquals(3, set.size());
+        Assert.assertTrue(set.contains("Aa") && set.contains("BB") && set.contains("C#"));
+
+        set = set.put("BB", 2);
+        Assert.assertEquals(3, set.size());
+        Assert.assertEquals(2, set.getModRevision("BB"));
+        Assert.assertEquals(1, set.getModRevision("Aa"));
+
+        set = set.delete("Aa", 3);
+        Assert.assertEquals(2, set.size());
+        Assert.assertFalse(set.contains("Aa"));
+        Assert.assertTrue(set.contains("BB"));
+        Assert.assertEquals(0, set.delete("BB", 4).delete("C#", 4).size());
+    }
+
+    @Test
+    public void test_same_as_hash_set() {
+        Random random = new Random(7);
+        Set<String> expected = new HashSet<>();
+        ChildrenSet actual = ChildrenSet.empty();
+        for (int i = 1; i <= 20000; i++) {
+            String child = "dubbo%3A%2F%2F10.0.0." + random.nextInt(2000);
+            if (random.nextBoolean()) {
+                expected.add(child);
+                actual = actual.put(child, i);
+            } else {
+                expected.remove(child);
+                actual = actual.delete(child, i);
+            }
+            Assert.assertEquals(expected.size(), actual.size());
+        }
+        Assert.assertEquals(expected, new HashSet<>(actual.asList()));
+        for (String child : expected) {
+            Assert.assertTrue(actual.contains(child));
+        }
+    }
+}
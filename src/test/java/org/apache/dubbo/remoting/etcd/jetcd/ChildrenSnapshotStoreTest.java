@@ -0,0 +1,78 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.dubbo.remoting.etcd.jetcd;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.function.Supplier;
+
+public class ChildrenSnapshotStoreTest {
+
+    File file;
+
+    @Test
+    public void test_restore_tracked_snapshot() {
+        ChildrenSnapshotStore store = new ChildrenSnapshotStore(file, 60_000);
+        Supplier<ChildrenSnapshot> source = () -> new ChildrenSnapshot("/dubbo/demo/providers", 42, Arrays.asList("a", "b"));
+        store.track("/dubbo/demo/providers", source);
+        store.close();
+
+        ChildrenSnapshotStore restored = new ChildrenSnapshotStore(file, 60_000);
+        try {
+            ChildrenSnapshot snapshot = restored.get("/dubbo/demo/providers");
+            Assert.assertNotNull(snapshot);
+            Assert.assertEquals(42, snapshot.getRevision());
+            Assert.assertEquals(Arrays.asList("a", "b"), snapshot.getChildren());
+        } finally {
+            restored.close();
+        }
+    }
+
+    @Test
+    public void test_forget_untracked_path() {
+        ChildrenSnapshotStore store = new ChildrenSnapshotStore(file, 60_000);
+        Supplier<ChildrenSnapshot> source = () -> new ChildrenSnapshot("/dubbo/demo/providers", 42, Arrays.asList("a"));
+        store.track("/dubbo/demo/providers", source);
+        store.flush();
+        store.untrack(source);
+        store.close();
+
+        ChildrenSnapshotStore restored = new ChildrenSnapshotStore(file, 60_000);
+        try {
+            Assert.assertNull(restored.get("/dubbo/demo/providers"));
+        } finally {
+            restored.close();
+        }
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("etcd3", ".snapshot");
+        file.delete();
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+}
@@ -0,0 +1,1047 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.dubbo.remoting.etcd.jetcd;
+
+import org.apache.dubbo.common.URL;
+import org.apache.dubbo.common.utils.NamedThreadFactory;
+
+import com.google.protobuf.ByteString;
+import io.etcd.jetcd.api.CompactionRequest;
+import io.etcd.jetcd.api.CompactionResponse;
+import io.etcd.jetcd.api.Compare;
+import io.etcd.jetcd.api.DeleteRangeRequest;
+import io.etcd.jetcd.api.DeleteRangeResponse;
+import io.etcd.jetcd.api.Event;
+import io.etcd.jetcd.api.KVGrpc;
+import io.etcd.jetcd.api.KeyValue;
+import io.etcd.jetcd.api.LeaseGrantRequest;
+import io.etcd.jetcd.api.LeaseGrantResponse;
+import io.etcd.jetcd.api.LeaseGrpc;
+import io.etcd.jetcd.api.LeaseKeepAliveRequest;
+import io.etcd.jetcd.api.LeaseKeepAliveResponse;
+import io.etcd.jetcd.api.LeaseRevokeRequest;
+import io.etcd.jetcd.api.LeaseRevokeResponse;
+import io.etcd.jetcd.api.LeaseTimeToLiveRequest;
+import io.etcd.jetcd.api.LeaseTimeToLiveResponse;
+import io.etcd.jetcd.api.PutRequest;
+import io.etcd.jetcd.api.PutResponse;
+import io.etcd.jetcd.api.RangeRequest;
+import io.etcd.jetcd.api.RangeResponse;
+import io.etcd.jetcd.api.RequestOp;
+import io.etcd.jetcd.api.ResponseHeader;
+import io.etcd.jetcd.api.ResponseOp;
+import io.etcd.jetcd.api.TxnRequest;
+import io.etcd.jetcd.api.TxnResponse;
+import io.etcd.jetcd.api.WatchCreateRequest;
+import io.etcd.jetcd.api.WatchGrpc;
+import io.etcd.jetcd.api.WatchRequest;
+import io.etcd.jetcd.api.WatchResponse;
+import io.grpc.Server;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.netty.NettyServerBuilder;
+import io.grpc.stub.StreamObserver;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * a single member etcd serving the kv, watch and lease services in process, for tests
+ * and benchmarks of the registry without a real etcd.
+ * <p>
+ * keeps every version of keys until compacted, so ranges and watches can be served from
+ * past revisions, leases expire after their ttl unless kept alive. all requests are applied
+ * under one lock, watch events are sent in revision order before the request returns.
+ * not supported: auth, cluster and maintenance services, nested txns, sorting, watch filters.
+ */
+public class EtcdStandInServer implements Closeable {
+
+    private static final long CLUSTER_ID = 0xE7CD;
+
+    private static final long MEMBER_ID = 0x57A4D;
+
+    private static final Comparator<ByteString> KEY_ORDER = (a, b) -> {
+        int size = Math.min(a.size(), b.size());
+        for (int i = 0; i < size; i++) {
+            int diff = (a.byteAt(i) & 0xFF) - (b.byteAt(i) & 0xFF);
+            if (diff != 0) {
+                return diff;
+            }
+        }
+        return a.size() - b.size();
+    };
+
+    /**
+     * the default --max-txn-ops of etcd.
+     */
+    private static final int MAX_TXN_OPS = 128;
+
+    private static final ByteString ALL_KEYS = ByteString.copyFrom(new byte[]{0});
+
+    private final Object lock = new Object();
+
+    /**
+     * versions of every key in revision order, a deletion is kept as a version without kv.
+     */
+    private final NavigableMap<ByteString, List<Version>> keys = new TreeMap<>(KEY_ORDER);
+
+    /**
+     * events in revision order, replayed to watches starting from a past revision.
+     */
+    private final List<Event> events = new ArrayList<>();
+
+    private final Map<Long, Lease> leases = new HashMap<>();
+
+    private final Set<Watch> watches = new LinkedHashSet<>();
+
+    private final ScheduledExecutorService expirer = Executors.newSingleThreadScheduledExecutor(
+            new NamedThreadFactory("etcd3-stand-in-lease", true));
+
+    private long revision = 1;
+
+    private long compactRevision;
+
+    private long nextLeaseId = 1;
+
+    private long nextWatchId;
+
+    /**
+     * requests fail as if the cluster has no leader until then.
+     */
+    private long leaderLostUntil;
+
+    /**
+     * watch requests fail until then, other requests succeed.
+     */
+    private long watchesLostUntil;
+
+    private final Set<WatchStream> streams = new HashSet<>();
+
+    /**
+     * serializable ranges are answered as by a follower behind the leader.
+     */
+    private volatile boolean staleFollower;
+
+    private Server server;
+
+    public EtcdStandInServer start() throws IOException {
+        server = NettyServerBuilder.forAddress(new InetSocketAddress("127.0.0.1", 0))
+                .addService(new KVService())
+                .addService(new WatchService())
+                .addService(new LeaseService())
+                .build()
+                .start();
+        expirer.scheduleWithFixedDelay(this::expireLeases, 100, 100, TimeUnit.MILLISECONDS);
+        return this;
+    }
+
+    public int getPort() {
+        return server.getPort();
+    }
+
+    /**
+     * registry url connecting to this server.
+     */
+    public URL toUrl() {
+        return URL.valueOf("etcd3://127.0.0.1:" + getPort() + "/org.apache.dubbo.registry.RegistryService");
+    }
+
+    public long getRevision() {
+        synchronized (lock) {
+            return revision;
+        }
+    }
+
+    /**
+     * drop versions and events before revision, watches and ranges from
+     * a revision before it fail as compacted since then.
+     */
+    public void compact(long revision) {
+        synchronized (lock) {
+            doCompact(revision);
+        }
+    }
+
+    /**
+     * expire the lease now, as if it has not been kept alive.
+     */
+    public void expire(long leaseId) {
+        synchronized (lock) {
+            revoke(leaseId);
+        }
+    }
+
+    /**
+     * ids of the leases alive.
+     */
+    public List<Long> getLeases() {
+        synchronized (lock) {
+            return new ArrayList<>(leases.keySet());
+        }
+    }
+
+    /**
+     * the number of watches created and not cancelled on all streams.
+     */
+    public int getWatchCount() {
+        synchronized (lock) {
+            return watches.size();
+        }
+    }
+
+    /**
+     * fail every open watch stream, as a broken connection does, later requests succeed.
+     */
+    public void breakWatchStreams() {
+        breakWatchStreams(0, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * fail every open watch stream and the watches requested for the duration, changes
+     * committed meanwhile are missed by watchers until they watch again.
+     */
+    public void breakWatchStreams(long duration, TimeUnit unit) {
+        synchronized (lock) {
+            watchesLostUntil = System.currentTimeMillis() + unit.toMillis(duration);
+            for (WatchStream stream : new ArrayList<>(streams)) {
+                stream.fail(watchBroken());
+            }
+        }
+    }
+
+    /**
+     * fail watch streams and every request with "no leader" for the duration, like a
+     * cluster losing its leader. leases do not expire meanwhile and are renewed after
+     * election, as etcd does.
+     */
+    public void loseLeader(long duration, TimeUnit unit) {
+        synchronized (lock) {
+            leaderLostUntil = System.currentTimeMillis() + unit.toMillis(duration);
+            for (WatchStream stream : new ArrayList<>(streams)) {
+                stream.fail(noLeader());
+            }
+        }
+    }
+
+    /**
+     * answer serializable ranges at a revision as a follower that has not applied it yet,
+     * failing them as a future revision.
+     */
+    public void setStaleFollower(boolean staleFollower) {
+        this.staleFollower = staleFollower;
+    }
+
+    @Override
+    public void close() {
+        expirer.shutdownNow();
+        synchronized (lock) {
+            for (Watch watch : new ArrayList<>(watches)) {
+                watch.close();
+            }
+        }
+        if (server != null) {
+            server.shutdownNow();
+        }
+    }
+
+    private ResponseHeader header() {
+        return ResponseHeader.newBuilder()
+                .setClusterId(CLUSTER_ID)
+                .setMemberId(MEMBER_ID)
+                .setRevision(revision)
+                .setRaftTerm(1)
+                .build();
+    }
+
+    private static StatusRuntimeException error(Status status, String description) {
+        return status.withDescription(description).asRuntimeException();
+    }
+
+    private static StatusRuntimeException noLeader() {
+        return error(Status.UNAVAILABLE, "etcdserver: no leader");
+    }
+
+    private static StatusRuntimeException watchBroken() {
+        return error(Status.UNAVAILABLE, "etcd stand-in: watch stream broken");
+    }
+
+    private void checkLeader() {
+        if (leaderLostUntil > System.currentTimeMillis()) {
+            throw noLeader();
+        }
+    }
+
+    private static boolean inRange(ByteString key, ByteString start, ByteString end) {
+        if (end.isEmpty()) {
+            return key.equals(start);
+        }
+        if (end.equals(ALL_KEYS)) {
+            return KEY_ORDER.compare(key, start) >= 0;
+        }
+        return KEY_ORDER.compare(key, start) >= 0 && KEY_ORDER.compare(key, end) < 0;
+    }
+
+    private NavigableMap<ByteString, List<Version>> keysIn(ByteString start, ByteString end) {
+        if (end.isEmpty()) {
+            return keys.subMap(start, true, start, true);
+        }
+        if (end.equals(ALL_KEYS)) {
+            return keys.tailMap(start, true);
+        }
+        if (KEY_ORDER.compare(start, end) >= 0) {
+            return new TreeMap<>(KEY_ORDER);
+        }
+        return keys.subMap(start, true, end, false);
+    }
+
+    /**
+     * the kv of the key at revision, null if absent.
+     */
+    private static KeyValue at(List<Version> versions, long revision) {
+        for (int i = versions.size() - 1; i >= 0; i--) {
+            Version version = versions.get(i);
+            if (version.revision <= revision) {
+                return version.kv;
+            }
+        }
+        return null;
+    }
+
+    private static KeyValue latest(List<Version> versions) {
+        return versions.isEmpty() ? null : versions.get(versions.size() - 1).kv;
+    }
+
+    /**
+     * @param latest the revision of latest writes, ahead of committed revision within a txn.
+     */
+    private RangeResponse range(RangeRequest request, long latest) {
+        checkRevision(request.getRevision());
+        long at = request.getRevision() > 0 ? request.getRevision() : latest;
+
+        RangeResponse.Builder response = RangeResponse.newBuilder();
+        long count = 0;
+        long limit = request.getLimit();
+        for (List<Version> versions : keysIn(request.getKey(), request.getRangeEnd()).values()) {
+            KeyValue kv = at(versions, at);
+            if (kv == null) {
+                continue;
+            }
+            count++;
+            if (request.getCountOnly()) {
+                continue;
+            }
+            if (limit > 0 && response.getKvsCount() >= limit) {
+                response.setMore(true);
+                continue;
+            }
+            response.addKvs(request.getKeysOnly() ? kv.toBuilder().clearValue().build() : kv);
+        }
+        return response.setCount(count).setHeader(header()).build();
+    }
+
+    private void checkRevision(long requested) {
+        if (requested > revision) {
+            throw error(Status.OUT_OF_RANGE, "etcdserver: mvcc: required revision is a future revision");
+        }
+        if (requested > 0 && requested < compactRevision) {
+            throw error(Status.OUT_OF_RANGE, "etcdserver: mvcc: required revision has been compacted");
+        }
+    }
+
+    private void checkLease(long lease) {
+        if (lease != 0 && !leases.containsKey(lease)) {
+            throw error(Status.NOT_FOUND, "etcdserver: requested lease not found");
+        }
+    }
+
+    private PutResponse put(PutRequest request, long at, List<Event> changes) {
+        checkLease(request.getLease());
+        List<Version> versions = keys.computeIfAbsent(request.getKey(), k -> new ArrayList<>());
+        KeyValue previous = latest(versions);
+        KeyValue kv = KeyValue.newBuilder()
+                .setKey(request.getKey())
+                .setValue(request.getValue())
+                .setLease(request.getLease())
+                .setCreateRevision(previous == null ? at : previous.getCreateRevision())
+                .setModRevision(at)
+                .setVersion(previous == null ? 1 : previous.getVersion() + 1)
+                .build();
+        setVersion(versions, at, kv);
+        if (previous != null && previous.getLease() != 0 && previous.getLease() != kv.getLease()) {
+            Lease lease = leases.get(previous.getLease());
+            if (lease != null) {
+                lease.keys.remove(kv.getKey());
+            }
+        }
+        if (kv.getLease() != 0) {
+            leases.get(kv.getLease()).keys.add(kv.getKey());
+        }
+        changes.add(Event.newBuilder().setType(Event.EventType.PUT).setKv(kv).build());
+
+        PutResponse.Builder response = PutResponse.newBuilder();
+        if (request.getPrevKv() && previous != null) {
+            response.setPrevKv(previous);
+        }
+        return response.build();
+    }
+
+    private DeleteRangeResponse delete(DeleteRangeRequest request, long at, List<Event> changes) {
+        DeleteRangeResponse.Builder response = DeleteRangeResponse.newBuilder();
+        long deleted = 0;
+        for (Map.Entry<ByteString, List<Version>> entry : keysIn(request.getKey(), request.getRangeEnd()).entrySet()) {
+            KeyValue previous = latest(entry.getValue());
+            if (previous == null) {
+                continue;
+            }
+            deleted++;
+            setVersion(entry.getValue(), at, null);
+            if (previous.getLease() != 0) {
+                Lease lease = leases.get(previous.getLease());
+                if (lease != null) {
+                    lease.keys.remove(entry.getKey());
+                }
+            }
+            changes.add(Event.newBuilder()
+                    .setType(Event.EventType.DELETE)
+                    .setKv(KeyValue.newBuilder().setKey(entry.getKey()).setModRevision(at))
+                    .build());
+            if (request.getPrevKv()) {
+                response.addPrevKvs(previous);
+            }
+        }
+        return response.setDeleted(deleted).build();
+    }
+
+    /**
+     * writes of one request share a revision, a later write of a key replaces the earlier one.
+     */
+    private static void setVersion(List<Version> versions, long at, KeyValue kv) {
+        if (!versions.isEmpty() && versions.get(versions.size() - 1).revision == at) {
+            versions.remove(versions.size() - 1);
+        }
+        versions.add(new Version(at, kv));
+    }
+
+    private boolean compare(Compare compare) {
+        KeyValue kv = latest(keys.getOrDefault(compare.getKey(), new ArrayList<>()));
+        long actual;
+        long expected;
+        switch (compare.getTarget()) {
+            case VERSION:
+                actual = kv == null ? 0 : kv.getVersion();
+                expected = compare.getVersion();
+                break;
+            case CREATE:
+                actual = kv == null ? 0 : kv.getCreateRevision();
+                expected = compare.getCreateRevision();
+                break;
+            case MOD:
+                actual = kv == null ? 0 : kv.getModRevision();
+                expected = compare.getModRevision();
+                break;
+            case VALUE:
+                if (kv == null) {
+                    return false;
+                }
+                actual = KEY_ORDER.compare(kv.getValue(), compare.getValue());
+                expected = 0;
+                break;
+            default:
+                throw error(Status.INVALID_ARGUMENT, "etcdserver: unknown compare target " + compare.getTarget());
+        }
+        switch (compare.getResult()) {
+            case EQUAL:
+                return actual == expected;
+            case NOT_EQUAL:
+                return actual != expected;
+            case GREATER:
+                return actual > expected;
+            case LESS:
+                return actual < expected;
+            default:
+                throw error(Status.INVALID_ARGUMENT, "etcdserver: unknown compare result " + compare.getResult());
+        }
+    }
+
+    private TxnResponse txn(TxnRequest request) {
+        boolean succeeded = true;
+        for (Compare compare : request.getCompareList()) {
+            succeeded &= compare(compare);
+        }
+        List<RequestOp> ops = succeeded ? request.getSuccessList() : request.getFailureList();
+
+        // a failed txn changes nothing, so check everything before applying any op.
+        if (ops.size() > MAX_TXN_OPS) {
+            throw error(Status.INVALID_ARGUMENT, "etcdserver: too many operations in txn request");
+        }
+        Set<ByteString> written = new HashSet<>();
+        for (RequestOp op : ops) {
+            switch (op.getRequestCase()) {
+                case REQUEST_RANGE:
+                    checkRevision(op.getRequestRange().getRevision());
+                    break;
+                case REQUEST_PUT:
+                    checkLease(op.getRequestPut().getLease());
+                    checkDuplicate(written, op.getRequestPut().getKey());
+                    break;
+                case REQUEST_DELETE_RANGE:
+                    checkDuplicate(written, op.getRequestDeleteRange().getKey());
+                    break;
+                default:
+                    throw error(Status.UNIMPLEMENTED, "etcd stand-in: " + op.getRequestCase() + " is not supported");
+            }
+        }
+
+        long at = revision + 1;
+        List<Event> changes = new ArrayList<>();
+        TxnResponse.Builder response = TxnResponse.newBuilder().setSucceeded(succeeded);
+        for (RequestOp op : ops) {
+            switch (op.getRequestCase()) {
+                case REQUEST_RANGE:
+                    response.addResponses(ResponseOp.newBuilder().setResponseRange(range(op.getRequestRange(), at)));
+                    break;
+                case REQUEST_PUT:
+                    response.addResponses(ResponseOp.newBuilder().setResponsePut(put(op.getRequestPut(), at, changes)));
+                    break;
+                case REQUEST_DELETE_RANGE:
+                    response.addResponses(ResponseOp.newBuilder()
+                            .setResponseDeleteRange(delete(op.getRequestDeleteRange(), at, changes)));
+                    break;
+                default:
+                    break;
+            }
+        }
+        commit(changes);
+        return response.setHeader(header()).build();
+    }
+
+    private static void checkDuplicate(Set<ByteString> written, ByteString key) {
+        if (!written.add(key)) {
+            throw error(Status.INVALID_ARGUMENT, "etcdserver: duplicate key given in txn request");
+        }
+    }
+
+    /**
+     * make the changes visible at the next revision and send them to watches.
+     */
+    private void commit(List<Event> changes) {
+        if (changes.isEmpty()) {
+            return;
+        }
+        revision++;
+        events.addAll(changes);
+        for (Watch watch : new ArrayList<>(watches)) {
+            watch.send(changes);
+        }
+    }
+
+    private void doCompact(long compact) {
+        if (compact <= compactRevision) {
+            throw error(Status.OUT_OF_RANGE, "etcdserver: mvcc: required revision has been compacted");
+        }
+        if (compact > revision) {
+            throw error(Status.OUT_OF_RANGE, "etcdserver: mvcc: required revision is a future revision");
+        }
+        compactRevision = compact;
+        Iterator<List<Version>> iterator = keys.values().iterator();
+        while (iterator.hasNext()) {
+            List<Version> versions = iterator.next();
+            // keep the version visible at compact revision and later ones.
+            int keep = versions.size() - 1;
+            while (keep > 0 && versions.get(keep).revision > compact) {
+                keep--;
+            }
+            versions.subList(0, keep).clear();
+            if (versions.get(0).kv == null && versions.get(0).revision <= compact) {
+                versions.remove(0);
+            }
+            if (versions.isEmpty()) {
+                iterator.remove();
+            }
+        }
+        events.removeIf(event -> event.getKv().getModRevision() < compact);
+    }
+
+    private long grant(long id, long ttl) {
+        if (id == 0) {
+            while (leases.containsKey(nextLeaseId)) {
+                nextLeaseId++;
+            }
+            id = nextLeaseId++;
+        } else if (leases.containsKey(id)) {
+            throw error(Status.FAILED_PRECONDITION, "etcdserver: lease already exists");
+        }
+        leases.put(id, new Lease(id, ttl));
+        return id;
+    }
+
+    /**
+     * delete the keys of the lease at one revision.
+     */
+    private boolean revoke(long id) {
+        Lease lease = leases.remove(id);
+        if (lease == null) {
+            return false;
+        }
+        long at = revision + 1;
+        List<Event> changes = new ArrayList<>();
+        for (ByteString key : new ArrayList<>(lease.keys)) {
+            delete(DeleteRangeRequest.newBuilder().setKey(key).build(), at, changes);
+        }
+        commit(changes);
+        return true;
+    }
+
+    private void expireLeases() {
+        synchronized (lock) {
+            long now = System.currentTimeMillis();
+            if (leaderLostUntil > now) {
+                return;
+            }
+            if (leaderLostUntil > 0) {
+                leaderLostUntil = 0;
+                for (Lease lease : leases.values()) {
+                    lease.refresh();
+                }
+            }
+            for (Lease lease : new ArrayList<>(leases.values())) {
+                if (lease.deadline <= now) {
+                    revoke(lease.id);
+                }
+            }
+        }
+    }
+
+    private static class Version {
+
+        final long revision;
+
+        /**
+         * null if deleted at revision.
+         */
+        final KeyValue kv;
+
+        Version(long revision, KeyValue kv) {
+            this.revision = revision;
+            this.kv = kv;
+        }
+    }
+
+    private static class Lease {
+
+        final long id;
+
+        final long ttl;
+
+        final Set<ByteString> keys = new HashSet<>();
+
+        volatile long deadline;
+
+        Lease(long id, long ttl) {
+            this.id = id;
+            this.ttl = ttl;
+            refresh();
+        }
+
+        void refresh() {
+            deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(ttl);
+        }
+    }
+
+    /**
+     * a watch of one stream, responses of a stream are sent under the server lock.
+     */
+    private class Watch {
+
+        final long id;
+
+        final WatchStream stream;
+
+        final ByteString key;
+
+        final ByteString rangeEnd;
+
+        /**
+         * events before it were sent, or are not wanted.
+         */
+        long nextRevision;
+
+        Watch(long id, WatchStream stream, WatchCreateRequest request) {
+            this.id = id;
+            this.stream = stream;
+            this.key = request.getKey();
+            this.rangeEnd = request.getRangeEnd();
+            this.nextRevision = request.getStartRevision() > 0 ? request.getStartRevision() : revision + 1;
+        }
+
+        void send(List<Event> changes) {
+            List<Event> matched = new ArrayList<>();
+            for (Event event : changes) {
+                long modRevision = event.getKv().getModRevision();
+                if (modRevision >= nextRevision && inRange(event.getKv().getKey(), key, rangeEnd)) {
+                    matched.add(event);
+                }
+            }
+            if (!matched.isEmpty()) {
+                nextRevision = matched.get(matched.size() - 1).getKv().getModRevision() + 1;
+                stream.send(WatchResponse.newBuilder()
+                        .setHeader(header())
+                        .setWatchId(id)
+                        .addAllEvents(matched)
+                        .build());
+            }
+        }
+
+        void close() {
+            watches.remove(this);
+            stream.complete();
+        }
+    }
+
+    private class WatchStream implements StreamObserver<WatchRequest> {
+
+        private final StreamObserver<WatchResponse> responses;
+
+        private final Map<Long, Watch> streamWatches = new HashMap<>();
+
+        private boolean closed;
+
+        WatchStream(StreamObserver<WatchResponse> responses) {
+            this.responses = responses;
+        }
+
+        @Override
+        public void onNext(WatchRequest request) {
+            synchronized (lock) {
+                if (leaderLostUntil > System.currentTimeMillis()) {
+                    fail(noLeader());
+                    return;
+                }
+                if (watchesLostUntil > System.currentTimeMillis()) {
+                    fail(watchBroken());
+                    return;
+                }
+                streams.add(this);
+                if (request.hasCreateRequest()) {
+                    create(request.getCreateRequest());
+                } else if (request.hasCancelRequest()) {
+                    Watch watch = streamWatches.remove(request.getCancelRequest().getWatchId());
+                    if (watch != null) {
+                        watches.remove(watch);
+                    }
+                    send(WatchResponse.newBuilder()
+                            .setHeader(header())
+                            .setWatchId(request.getCancelRequest().getWatchId())
+                            .setCanceled(true)
+                            .build());
+                }
+            }
+        }
+
+        private void create(WatchCreateRequest request) {
+            Watch watch = new Watch(nextWatchId++, this, request);
+            send(WatchResponse.newBuilder().setHeader(header()).setWatchId(watch.id).setCreated(true).build());
+
+            if (request.getStartRevision() > 0 && request.getStartRevision() < compactRevision) {
+                send(WatchResponse.newBuilder()
+                        .setHeader(header())
+                        .setWatchId(watch.id)
+                        .setCanceled(true)
+                        .setCompactRevision(compactRevision)
+                        .setCancelReason("etcdserver: mvcc: required revision has been compacted")
+                        .build());
+                return;
+            }
+
+            // replay the past revisions, later ones are sent as they are committed.
+            watch.send(events);
+            streamWatches.put(watch.id, watch);
+            watches.add(watch);
+        }
+
+        void send(WatchResponse response) {
+            if (!closed) {
+                responses.onNext(response);
+            }
+        }
+
+        void complete() {
+            if (!closed) {
+                closed = true;
+                streams.remove(this);
+                responses.onCompleted();
+            }
+        }
+
+        void fail(StatusRuntimeException e) {
+            watches.removeAll(streamWatches.values());
+            streamWatches.clear();
+            if (!closed) {
+                closed = true;
+                streams.remove(this);
+                responses.onError(e);
+            }
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            onCompleted();
+        }
+
+        @Override
+        public void onCompleted() {
+            synchronized (lock) {
+                watches.removeAll(streamWatches.values());
+                streamWatches.clear();
+                complete();
+            }
+        }
+    }
+
+    private class KVService extends KVGrpc.KVImplBase {
+
+        @Override
+        public void range(RangeRequest request, StreamObserver<RangeResponse> responseObserver) {
+            RangeResponse response;
+            try {
+                synchronized (lock) {
+                    checkLeader();
+                    if (staleFollower && request.getSerializable() && request.getRevision() > 0) {
+                        throw error(Status.OUT_OF_RANGE, "etcdserver: mvcc: required revision is a future revision");
+                    }
+                    response = EtcdStandInServer.this.range(request, revision);
+                }
+            } catch (StatusRuntimeException e) {
+                responseObserver.onError(e);
+                return;
+            }
+            responseObserver.onNext(response);
+            responseObserver.onCompleted();
+        }
+
+        @Override
+        public void put(PutRequest request, StreamObserver<PutResponse> responseObserver) {
+            PutResponse response;
+            try {
+                synchronized (lock) {
+                    checkLeader();
+                    List<Event> changes = new ArrayList<>();
+                    PutResponse put = EtcdStandInServer.this.put(request, revision + 1, changes);
+                    commit(changes);
+                    response = put.toBuilder().setHeader(header()).build();
+                }
+            } catch (StatusRuntimeException e) {
+                responseObserver.onError(e);
+                return;
+            }
+            responseObserver.onNext(response);
+            responseObserver.onCompleted();
+        }
+
+        @Override
+        public void deleteRange(DeleteRangeRequest request, StreamObserver<DeleteRangeResponse> responseObserver) {
+            DeleteRangeResponse response;
+            try {
+                synchronized (lock) {
+                    checkLeader();
+                    List<Event> changes = new ArrayList<>();
+                    DeleteRangeResponse delete = EtcdStandInServer.this.delete(request, revision + 1, changes);
+                    commit(changes);
+                    response = delete.toBuilder().setHeader(header()).build();
+                }
+            } catch (StatusRuntimeException e) {
+                responseObserver.onError(e);
+                return;
+            }
+            responseObserver.onNext(response);
+            responseObserver.onCompleted();
+        }
+
+        @Override
+        public void txn(TxnRequest request, StreamObserver<TxnResponse> responseObserver) {
+            TxnResponse response;
+            try {
+                synchronized (lock) {
+                    checkLeader();
+                    response = EtcdStandInServer.this.txn(request);
+                }
+            } catch (StatusRuntimeException e) {
+                responseObserver.onError(e);
+                return;
+            }
+            responseObserver.onNext(response);
+            responseObserver.onCompleted();
+        }
+
+        @Override
+        public void compact(CompactionRequest request, StreamObserver<CompactionResponse> responseObserver) {
+            CompactionResponse response;
+            try {
+                synchronized (lock) {
+                    checkLeader();
+                    doCompact(request.getRevision());
+                    response = CompactionResponse.newBuilder().setHeader(header()).build();
+                }
+            } catch (StatusRuntimeException e) {
+                responseObserver.onError(e);
+                return;
+            }
+            responseObserver.onNext(response);
+            responseObserver.onCompleted();
+        }
+    }
+
+    private class WatchService extends WatchGrpc.WatchImplBase {
+
+        @Override
+        public StreamObserver<WatchRequest> watch(StreamObserver<WatchResponse> responseObserver) {
+            return new WatchStream(responseObserver);
+        }
+    }
+
+    private class LeaseService extends LeaseGrpc.LeaseImplBase {
+
+        @Override
+        public void leaseGrant(LeaseGrantRequest request, StreamObserver<LeaseGrantResponse> responseObserver) {
+            LeaseGrantResponse response;
+            try {
+                synchronized (lock) {
+                    checkLeader();
+                    long id = grant(request.getID(), request.getTTL());
+                    response = LeaseGrantResponse.newBuilder()
+                            .setHeader(header())
+                            .setID(id)
+                            .setTTL(request.getTTL())
+                            .build();
+                }
+            } catch (StatusRuntimeException e) {
+                responseObserver.onError(e);
+                return;
+            }
+            responseObserver.onNext(response);
+            responseObserver.onCompleted();
+        }
+
+        @Override
+        public void leaseRevoke(LeaseRevokeRequest request, StreamObserver<LeaseRevokeResponse> responseObserver) {
+            synchronized (lock) {
+                if (leaderLostUntil > System.currentTimeMillis()) {
+                    responseObserver.onError(noLeader());
+                    return;
+                }
+                if (!revoke(request.getID())) {
+                    responseObserver.onError(error(Status.NOT_FOUND, "etcdserver: requested lease not found"));
+                    return;
+                }
+                responseObserver.onNext(LeaseRevokeResponse.newBuilder().setHeader(header()).build());
+            }
+            responseObserver.onCompleted();
+        }
+
+        @Override
+        public StreamObserver<LeaseKeepAliveRequest> leaseKeepAlive(StreamObserver<LeaseKeepAliveResponse> responseObserver) {
+            return new StreamObserver<LeaseKeepAliveRequest>() {
+
+                private boolean closed;
+
+                @Override
+                public void onNext(LeaseKeepAliveRequest request) {
+                    LeaseKeepAliveResponse response;
+                    synchronized (lock) {
+                        if (leaderLostUntil > System.currentTimeMillis()) {
+                            response = null;
+                        } else {
+                            Lease lease = leases.get(request.getID());
+                            if (lease != null) {
+                                lease.refresh();
+                            }
+                            // ttl 0 tells the lease is gone.
+                            response = LeaseKeepAliveResponse.newBuilder()
+                                    .setHeader(header())
+                                    .setID(request.getID())
+                                    .setTTL(lease == null ? 0 : lease.ttl)
+                                    .build();
+                        }
+                    }
+                    synchronized (this) {
+                        if (closed) {
+                            return;
+                        }
+                        if (response == null) {
+                            closed = true;
+                            responseObserver.onError(noLeader());
+                        } else {
+                            responseObserver.onNext(response);
+                        }
+                    }
+                }
+
+                @Override
+                public void onError(Throwable t) {
+                    onCompleted();
+                }
+
+                @Override
+                public synchronized void onCompleted() {
+                    if (!closed) {
+                        closed = true;
+                        responseObserver.onCompleted();
+                    }
+                }
+            };
+        }
+
+        @Override
+        public void leaseTimeToLive(LeaseTimeToLiveRequest request, StreamObserver<LeaseTimeToLiveResponse> responseObserver) {
+            LeaseTimeToLiveResponse.Builder response = LeaseTimeToLiveResponse.newBuilder().setID(request.getID());
+            synchronized (lock) {
+                if (leaderLostUntil > System.currentTimeMillis()) {
+                    responseObserver.onError(noLeader());
+                    return;
+                }
+                Lease lease = leases.get(request.getID());
+                if (lease == null) {
+                    response.setTTL(-1);
+                } else {
+                    response.setGrantedTTL(lease.ttl)
+                            .setTTL(Math.max(0, TimeUnit.MILLISECONDS.toSeconds(lease.deadline - System.currentTimeMillis())));
+                    if (request.getKeys()) {
+                        response.addAllKeys(lease.keys);
+                    }
+                }
+                response.setHeader(header());
+            }
+            responseObserver.onNext(response.build());
+            responseObserver.onCompleted();
+        }
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.dubbo.remoting.etcd.jetcd;
+
+import org.apache.dubbo.common.Constants;
+import org.apache.dubbo.remoting.etcd.ChildListener;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class EtcdStandInServerTest {
+
+    EtcdStandInServer server;
+
+    JEtcdClient client;
+
+    @Test
+    public void test_create_and_list_children() {
+        String path = "/dubbo/org.apache.dubbo.demo.DemoService/providers";
+
+        client.create(path + "/provider1");
+        client.create(path + "/provider2");
+        client.create(path + "/provider2/nested");
+
+        List<String> children = client.getChildren(path);
+        Collections.sort(children);
+        Assert.assertEquals(Arrays.asList(path + "/provider1", path + "/provider2"), children);
+        Assert.assertTrue(client.checkExists(path + "/provider1"));
+
+        client.delete(path + "/provider1");
+        Assert.assertFalse(client.checkExists(path + "/provider1"));
+    }
+
+    @Test
+    public void test_watch_and_lease_expiry() throws InterruptedException {
+        String path = "/dubbo/org.apache.dubbo.demo.DemoService/consumers";
+        String child = path + "/consumer1";
+
+        final CountDownLatch created = new CountDownLatch(1);
+        final CountDownLatch expired = new CountDownLatch(1);
+        ChildListener listener = (parent, children) -> {
+            if (children.isEmpty()) {
+                expired.countDown();
+            } else {
+                created.countDown();
+            }
+        };
+        client.addChildListener(path, listener);
+
+        long lease = client.createEphemeral(child);
+        Assert.assertTrue(created.await(5, TimeUnit.SECONDS));
+
+        server.expire(lease);
+        Assert.assertTrue(expired.await(5, TimeUnit.SECONDS));
+
+        client.removeChildListener(path, listener);
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        server = new EtcdStandInServer().start();
+        client = new JEtcdClient(server.toUrl().addParameter(Constants.SESSION_TIMEOUT_KEY, 15000));
+    }
+
+    @After
+    public void tearDown() {
+        client.close();
+        server.close();
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.dubbo.remoting.etcd.jetcd;
+
+import org.apache.dubbo.remoting.etcd.RetryPolicy;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+public class ExponentialBackoffRetryTest {
+
+    @Test
+    public void test_sleep_time_bounded() {
+        ExponentialBackoffRetry retry = new ExponentialBackoffRetry(10, 100, 1000, TimeUnit.MILLISECONDS);
+        Set<Long> sleeps = new HashSet<>();
+        for (int retried = 0; retried < 10; retried++) {
+            for (int i = 0; i < 100; i++) {
+                long sleep = retry.getSleepTime(retried, 0);
+                Assert.assertTrue(sleep >= 100 && sleep <= 1000);
+                if (retried == 0) {
+                    Assert.assertTrue(sleep <= 300);
+                }
+                sleeps.add(sleep);
+            }
+        }
+        // jittered, clients must not retry in lockstep.
+        Assert.assertTrue(sleeps.size() > 1);
+    }
+
+    @Test
+    public void test_max_retried() {
+        ExponentialBackoffRetry retry = new ExponentialBackoffRetry(2, 1, 1, TimeUnit.MILLISECONDS);
+        Assert.assertTrue(retry.shouldRetry(0, 0, false));
+        Assert.assertTrue(retry.shouldRetry(1, 0, false));
+        Assert.assertFalse(retry.shouldRetry(2, 0, false));
+    }
+
+    @Test
+    public void test_deadline() {
+        RetryPolicy retry = new DeadlineRetry(
+                new ExponentialBackoffRetry(10, 100, 1000, TimeUnit.MILLISECONDS), 500, TimeUnit.MILLISECONDS);
+        Assert.assertTrue(retry.shouldRetry(0, 0, false));
+        Assert.assertTrue(retry.getSleepTime(3, 450) <= 50);
+        Assert.assertFalse(retry.shouldRetry(1, 500, false));
+    }
+}
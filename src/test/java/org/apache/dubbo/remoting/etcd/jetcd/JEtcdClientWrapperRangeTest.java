@@ -0,0 +1,82 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.dubbo.remoting.etcd.jetcd;
+
+import org.apache.dubbo.common.URL;
+import org.apache.dubbo.remoting.etcd.option.Constants;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class JEtcdClientWrapperRangeTest {
+
+    private static final String PATH = "/dubbo/org.apache.dubbo.demo.DemoService/providers";
+
+    EtcdStandInServer server;
+
+    JEtcdClientWrapper clientWrapper;
+
+    @Test
+    public void test_paged_listing() throws Exception {
+        ChildrenSnapshot snapshot = clientWrapper.getChildrenSnapshot(PATH);
+
+        Assert.assertEquals(expected(), snapshot.getChildren());
+        Assert.assertEquals(server.getRevision(), snapshot.getRevision());
+        Assert.assertEquals(expected(), clientWrapper.getChildrenSnapshotAsync(PATH).get().getChildren());
+    }
+
+    @Test
+    public void test_paged_listing_served_by_stale_follower() throws Exception {
+        server.setStaleFollower(true);
+
+        Assert.assertEquals(expected(), clientWrapper.getChildrenSnapshot(PATH).getChildren());
+        Assert.assertEquals(expected(), clientWrapper.getChildrenSnapshotAsync(PATH).get().getChildren());
+    }
+
+    private static List<String> expected() {
+        List<String> children = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            children.add("provider" + i);
+        }
+        return children;
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        server = new EtcdStandInServer().start();
+        URL url = server.toUrl()
+                .addParameter(Constants.SESSION_TIMEOUT_KEY, 15000)
+                .addParameter(Constants.ETCD3_RANGE_PAGE_SIZE_KEY, 2)
+                .addParameter(Constants.ETCD3_READ_CONSISTENCY_KEY, Constants.ETCD3_READ_CONSISTENCY_SERIALIZABLE);
+        clientWrapper = new JEtcdClientWrapper(url);
+        clientWrapper.start();
+        for (String child : expected()) {
+            clientWrapper.createPersistent(PATH + "/" + child);
+        }
+    }
+
+    @After
+    public void tearDown() {
+        clientWrapper.doClose();
+        server.close();
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.dubbo.remoting.etcd.jetcd;
+
+import org.apache.dubbo.common.URL;
+import org.apache.dubbo.remoting.etcd.EtcdClient;
+import org.apache.dubbo.remoting.etcd.option.Constants;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+
+public class JEtcdTransporterTest {
+
+    private static final String PATH = "/dubbo/org.apache.dubbo.demo.DemoService/providers";
+
+    EtcdStandInServer server;
+
+    JEtcdTransporter transporter;
+
+    URL url;
+
+    @Test
+    public void test_same_key_shares_client() {
+        EtcdClient first = transporter.connect(url);
+        EtcdClient second = transporter.connect(url.addParameter(Constants.APPLICATION_KEY, "another"));
+        try {
+            Assert.assertTrue(first instanceof SharedEtcdClient);
+            Assert.assertSame(((SharedEtcdClient) first).getClient(), ((SharedEtcdClient) second).getClient());
+        } finally {
+            first.close();
+            second.close();
+        }
+    }
+
+    @Test
+    public void test_client_options_not_shared() {
+        EtcdClient first = transporter.connect(url);
+        EtcdClient second = transporter.connect(url.addParameter(Constants.SESSION_TIMEOUT_KEY, 30000));
+        EtcdClient third = transporter.connect(url.addParameter(Constants.ETCD3_WATCH_STREAMS_KEY, 2));
+        try {
+            Assert.assertNotSame(((SharedEtcdClient) first).getClient(), ((SharedEtcdClient) second).getClient());
+            Assert.assertNotSame(((SharedEtcdClient) first).getClient(), ((SharedEtcdClient) third).getClient());
+            Assert.assertEquals(30000, ((SharedEtcdClient) second).getClient().getUrl()
+                    .getParameter(Constants.SESSION_TIMEOUT_KEY, 0));
+        } finally {
+            first.close();
+            second.close();
+            third.close();
+        }
+    }
+
+    @Test
+    public void test_share_disabled() {
+        URL unshared = url.addParameter(Constants.ETCD3_CLIENT_SHARE_KEY, false);
+        EtcdClient first = transporter.connect(unshared);
+        EtcdClient second = transporter.connect(unshared);
+        try {
+            Assert.assertTrue(first instanceof JEtcdClient);
+            Assert.assertNotSame(first, second);
+        } finally {
+            first.close();
+            second.close();
+        }
+    }
+
+    @Test
+    public void test_last_release_closes_client() {
+        SharedEtcdClient first = (SharedEtcdClient) transporter.connect(url);
+        SharedEtcdClient second = (SharedEtcdClient) transporter.connect(url);
+        JEtcdClient client = first.getClient();
+
+        first.close();
+        first.close();
+        Assert.assertFalse(first.isConnected());
+        second.create(PATH);
+        Assert.assertTrue(second.isConnected());
+
+        second.close();
+        Assert.assertFalse(client.isConnected());
+    }
+
+    @Test
+    public void test_released_key_reconnects() {
+        SharedEtcdClient first = (SharedEtcdClient) transporter.connect(url);
+        JEtcdClient released = first.getClient();
+        first.close();
+
+        SharedEtcdClient again = (SharedEtcdClient) transporter.connect(url);
+        try {
+            Assert.assertNotSame(released, again.getClient());
+            again.create(PATH);
+            Assert.assertTrue(again.isConnected());
+        } finally {
+            again.close();
+        }
+    }
+
+    @Test
+    public void test_close_deletes_ephemeral_paths() throws InterruptedException {
+        EtcdClient closing = transporter.connect(url);
+        EtcdClient remaining = transporter.connect(url);
+        try {
+            closing.createEphemeral(PATH + "/provider1");
+            remaining.createEphemeral(PATH + "/provider2");
+
+            closing.close();
+
+            long deadline = System.currentTimeMillis() + 5000;
+            while (remaining.getChildren(PATH).size() > 1 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(50);
+            }
+            Assert.assertEquals(Collections.singletonList(PATH + "/provider2"), remaining.getChildren(PATH));
+        } finally {
+            remaining.close();
+        }
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        server = new EtcdStandInServer().start();
+        transporter = new JEtcdTransporter();
+        url = server.toUrl().addParameter(Constants.SESSION_TIMEOUT_KEY, 15000);
+    }
+
+    @After
+    public void tearDown() {
+        server.close();
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.dubbo.remoting.etcd.jetcd;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class NotifyDispatcherTest {
+
+    NotifyDispatcher dispatcher;
+
+    @Test
+    public void test_coalesce_pending_changes() throws InterruptedException {
+
+        CountDownLatch firstDelivering = new CountDownLatch(1);
+        CountDownLatch releaseFirst = new CountDownLatch(1);
+        CountDownLatch allDelivered = new CountDownLatch(2);
+        List<ChildrenDelta> delivered = Collections.synchronizedList(new ArrayList<>());
+
+        NotifyDispatcher.Slot slot = dispatcher.newSlot(delta -> {
+            delivered.add(delta);
+            if (delivered.size() == 1) {
+                firstDelivering.countDown();
+                try {
+                    releaseFirst.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            allDelivered.countDown();
+        });
+
+        slot.submit(delta(1, new String[]{"a"}, new String[0]));
+        Assert.assertTrue(firstDelivering.await(10, TimeUnit.SECONDS));
+
+        // submitted while delivering, merged into one pending change.
+        slot.submit(delta(2, new String[]{"b", "c"}, new String[0]));
+        slot.submit(delta(3, new String[0], new String[]{"b", "a"}));
+        releaseFirst.countDown();
+
+        Assert.assertTrue(allDelivered.await(10, TimeUnit.SECONDS));
+        Assert.assertEquals(2, delivered.size());
+
+        ChildrenDelta merged = delivered.get(1);
+        Assert.assertEquals(Arrays.asList("c"), merged.getAdded());
+        Assert.assertEquals(Arrays.asList("a"), merged.getRemoved());
+        Assert.assertEquals(3, merged.getRevision());
+    }
+
+    @Test
+    public void test_deliver_in_order() throws InterruptedException {
+
+        int changes = 1000;
+        CountDownLatch delivered = new CountDownLatch(1);
+        List<Long> revisions = Collections.synchronizedList(new ArrayList<>());
+
+        NotifyDispatcher.Slot slot = dispatcher.newSlot(delta -> {
+            revisions.add(delta.getRevision());
+            if (delta.getRevision() == changes) {
+                delivered.countDown();
+            }
+        });
+
+        for (int i = 1; i <= changes; i++) {
+            slot.submit(delta(i, new String[]{"child" + i}, new String[0]));
+        }
+
+        Assert.assertTrue(delivered.await(10, TimeUnit.SECONDS));
+        for (int i = 1; i < revisions.size(); i++) {
+            Assert.assertTrue(revisions.get(i - 1) < revisions.get(i));
+        }
+        Assert.assertEquals(0, dispatcher.getPending());
+    }
+
+    private ChildrenDelta delta(long revision, String[] added, String[] removed) {
+        ChildrenDelta delta = new ChildrenDelta();
+        for (String child : added) {
+            delta.add(child);
+        }
+        for (String child : removed) {
+            delta.remove(child);
+        }
+        delta.updateRevision(revision);
+        return delta;
+    }
+
+    @Before
+    public void setUp() {
+        dispatcher = new NotifyDispatcher(4, 1024);
+    }
+
+    @After
+    public void tearDown() {
+        dispatcher.shutdown();
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.dubbo.remoting.etcd.jetcd;
+
+import com.google.protobuf.ByteString;
+import io.etcd.jetcd.api.KVGrpc;
+import io.etcd.jetcd.api.KeyValue;
+import io.etcd.jetcd.api.RangeRequest;
+import io.etcd.jetcd.api.RangeResponse;
+import io.etcd.jetcd.api.RequestOp;
+import io.etcd.jetcd.api.ResponseHeader;
+import io.etcd.jetcd.api.ResponseOp;
+import io.etcd.jetcd.api.TxnRequest;
+import io.etcd.jetcd.api.TxnResponse;
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.Status;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.StreamObserver;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+public class RangeBatcherTest {
+
+    private static final long TXN_REVISION = 42;
+
+    Server server;
+
+    ManagedChannel channel;
+
+    RangeBatcher batcher;
+
+    /**
+     * number of ranges of every request received, 1 for a plain range.
+     */
+    final List<Integer> requests = Collections.synchronizedList(new ArrayList<>());
+
+    volatile boolean failing;
+
+    @Test
+    public void test_ranges_within_window_are_read_by_one_txn() throws Exception {
+        batcher = newBatcher(10, 200);
+        List<CompletableFuture<RangeResponse>> futures = range("a", "b", "c");
+
+        for (int i = 0; i < futures.size(); i++) {
+            RangeResponse response = futures.get(i).get(5, TimeUnit.SECONDS);
+            Assert.assertEquals("abc".substring(i, i + 1), response.getKvs(0).getKey().toStringUtf8());
+            // the revision of txn, not the one of the single range response.
+            Assert.assertEquals(TXN_REVISION, response.getHeader().getRevision());
+        }
+        Assert.assertEquals(Collections.singletonList(3), requests);
+    }
+
+    @Test
+    public void test_split_at_max_ranges() throws Exception {
+        batcher = newBatcher(2, 200);
+        for (CompletableFuture<RangeResponse> future : range("a", "b", "c", "d", "e")) {
+            future.get(5, TimeUnit.SECONDS);
+        }
+        List<Integer> sizes = new ArrayList<>(requests);
+        Collections.sort(sizes);
+        Assert.assertEquals(Arrays.asList(1, 2, 2), sizes);
+    }
+
+    @Test
+    public void test_failure_fails_every_range_of_txn() throws Exception {
+        failing = true;
+        batcher = newBatcher(10, 200);
+        for (CompletableFuture<RangeResponse> future : range("a", "b", "c")) {
+            try {
+                future.get(5, TimeUnit.SECONDS);
+                Assert.fail("range of a failed txn completed");
+            } catch (ExecutionException e) {
+                Assert.assertEquals(Status.Code.UNAVAILABLE, Status.fromThrowable(e.getCause()).getCode());
+            }
+        }
+        Assert.assertEquals(Collections.singletonList(3), requests);
+    }
+
+    @Test
+    public void test_shutdown_fails_pending_ranges() throws Exception {
+        batcher = newBatcher(10, 60000);
+        CompletableFuture<RangeResponse> future = range("a").get(0);
+        batcher.shutdown();
+        try {
+            future.get(5, TimeUnit.SECONDS);
+            Assert.fail("pending range completed after shutdown");
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+        Assert.assertTrue(requests.isEmpty());
+    }
+
+    private List<CompletableFuture<RangeResponse>> range(String... keys) {
+        List<CompletableFuture<RangeResponse>> futures = new ArrayList<>();
+        for (String key : keys) {
+            futures.add(batcher.range(RangeRequest.newBuilder().setKey(ByteString.copyFromUtf8(key)).build()));
+        }
+        return futures;
+    }
+
+    private RangeBatcher newBatcher(int maxRanges, long window) {
+        return new RangeBatcher(() -> KVGrpc.newFutureStub(channel), maxRanges, window);
+    }
+
+    /**
+     * answers every range with the key requested, at a revision before the one of txn.
+     */
+    private static RangeResponse answer(RangeRequest request) {
+        return RangeResponse.newBuilder()
+                .setHeader(ResponseHeader.newBuilder().setRevision(TXN_REVISION - 1))
+                .addKvs(KeyValue.newBuilder().setKey(request.getKey()))
+                .setCount(1)
+                .build();
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        String name = InProcessServerBuilder.generateName();
+        server = InProcessServerBuilder.forName(name)
+                .directExecutor()
+                .addService(new KVGrpc.KVImplBase() {
+                    @Override
+                    public void range(RangeRequest request, StreamObserver<RangeResponse> responseObserver) {
+                        requests.add(1);
+                        if (failing) {
+                            responseObserver.onError(Status.UNAVAILABLE.asRuntimeException());
+                            return;
+                        }
+                        responseObserver.onNext(answer(request));
+                        responseObserver.onCompleted();
+                    }
+
+                    @Override
+                    public void txn(TxnRequest request, StreamObserver<TxnResponse> responseObserver) {
+                        requests.add(request.getSuccessCount());
+                        if (failing) {
+                            responseObserver.onError(Status.UNAVAILABLE.asRuntimeException());
+                            return;
+                        }
+                        TxnResponse.Builder response = TxnResponse.newBuilder()
+                                .setHeader(ResponseHeader.newBuilder().setRevision(TXN_REVISION))
+                                .setSucceeded(true);
+                        for (RequestOp op : request.getSuccessList()) {
+                            response.addResponses(ResponseOp.newBuilder().setResponseRange(answer(op.getRequestRange())));
+                        }
+                        responseObserver.onNext(response.build());
+                        responseObserver.onCompleted();
+                    }
+                })
+                .build()
+                .start();
+        channel = InProcessChannelBuilder.forName(name).directExecutor().build();
+    }
+
+    @After
+    public void tearDown() {
+        if (batcher != null) {
+            batcher.shutdown();
+        }
+        channel.shutdownNow();
+        server.shutdownNow();
+    }
+}
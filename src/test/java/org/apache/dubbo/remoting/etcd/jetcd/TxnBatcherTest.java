@@ -0,0 +1,109 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.dubbo.remoting.etcd.jetcd;
+
+import org.apache.dubbo.remoting.etcd.option.Constants;
+
+import io.grpc.Status;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+public class TxnBatcherTest {
+
+    private static final String PATH = "/dubbo/org.apache.dubbo.demo.DemoService/providers";
+
+    EtcdStandInServer server;
+
+    JEtcdClientWrapper clientWrapper;
+
+    TxnBatcher batcher;
+
+    @Test
+    public void test_put_then_delete_same_path() throws Exception {
+        String path = PATH + "/provider";
+        batcher.put(path, "v1", 0).get(5, TimeUnit.SECONDS);
+        long revision = server.getRevision();
+
+        CompletableFuture<Void> put = batcher.put(path, "v2", 0);
+        CompletableFuture<Void> delete = batcher.delete(path);
+        delete.get(5, TimeUnit.SECONDS);
+        put.get(5, TimeUnit.SECONDS);
+
+        Assert.assertFalse(clientWrapper.checkExists(path));
+        // both committed by one txn, the put replaced by the delete.
+        Assert.assertEquals(revision + 1, server.getRevision());
+    }
+
+    @Test
+    public void test_split_at_max_ops() throws Exception {
+        long revision = server.getRevision();
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            futures.add(batcher.put(PATH + "/provider" + i, "v", 0));
+        }
+        for (CompletableFuture<Void> future : futures) {
+            future.get(5, TimeUnit.SECONDS);
+        }
+
+        Assert.assertEquals(300, clientWrapper.getChildren(PATH).size());
+        // 128 + 128 + 44
+        Assert.assertEquals(revision + 3, server.getRevision());
+    }
+
+    @Test
+    public void test_failed_txn_fails_every_path() throws Exception {
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        futures.add(batcher.put(PATH + "/provider1", "v", 0));
+        futures.add(batcher.put(PATH + "/provider2", "v", 0));
+        futures.add(batcher.put(PATH + "/provider2", "v", 0));
+        // the lease does not exist, the whole txn is rejected.
+        futures.add(batcher.put(PATH + "/provider3", "v", 12345));
+
+        for (CompletableFuture<Void> future : futures) {
+            try {
+                future.get(5, TimeUnit.SECONDS);
+                Assert.fail("operation of a failed txn completed");
+            } catch (ExecutionException e) {
+                Assert.assertEquals(Status.Code.NOT_FOUND, Status.fromThrowable(e.getCause()).getCode());
+            }
+        }
+        Assert.assertTrue(clientWrapper.getChildren(PATH).isEmpty());
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        server = new EtcdStandInServer().start();
+        clientWrapper = new JEtcdClientWrapper(server.toUrl().addParameter(Constants.SESSION_TIMEOUT_KEY, 15000));
+        clientWrapper.start();
+        batcher = new TxnBatcher(clientWrapper::getChannel, 128, 200);
+    }
+
+    @After
+    public void tearDown() {
+        batcher.shutdown();
+        clientWrapper.doClose();
+        server.close();
+    }
+}
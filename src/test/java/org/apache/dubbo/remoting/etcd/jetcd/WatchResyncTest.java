@@ -0,0 +1,140 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.dubbo.remoting.etcd.jetcd;
+
+import org.apache.dubbo.remoting.etcd.ChildListener;
+import org.apache.dubbo.remoting.etcd.option.Constants;
+
+import com.google.protobuf.ByteString;
+import io.etcd.jetcd.api.Event;
+import io.etcd.jetcd.api.KeyValue;
+import io.etcd.jetcd.api.ResponseHeader;
+import io.etcd.jetcd.api.WatchResponse;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static org.apache.dubbo.remoting.etcd.jetcd.WatchStreamTest.await;
+
+public class WatchResyncTest {
+
+    private static final String PATH = "/dubbo/org.apache.dubbo.demo.DemoService/providers";
+
+    EtcdStandInServer server;
+
+    JEtcdClient client;
+
+    /**
+     * path -> the latest children notified.
+     */
+    final Map<String, List<String>> notified = new ConcurrentHashMap<>();
+
+    final ChildListener listener = (path, children) -> notified.put(path, children);
+
+    @Test
+    public void test_compacted_below_watcher_resyncs() throws Exception {
+        JEtcdClient.EtcdWatcher watcher = compactBehindWatcher();
+
+        Assert.assertEquals(server.getRevision(), watcher.revision);
+        Assert.assertEquals(Collections.singletonList("b"), watcher.urls.get().asList());
+        // watching again from the listing.
+        await(() -> server.getWatchCount() == 1);
+
+        client.create(PATH + "/c");
+        await(() -> children("b", "c").equals(new HashSet<>(notified.get(PATH))));
+    }
+
+    @Test
+    public void test_older_events_ignored_after_resync() throws Exception {
+        JEtcdClient.EtcdWatcher watcher = compactBehindWatcher();
+        long listed = watcher.revision;
+
+        // a was put before it's deleted at the listing revision, b was deleted before it's put again.
+        watcher.onNext(WatchResponse.newBuilder()
+                .setHeader(ResponseHeader.newBuilder().setRevision(listed))
+                .setWatchId(watcher.watchId)
+                .addEvents(event(Event.EventType.DELETE, "b", listed - 2))
+                .addEvents(event(Event.EventType.PUT, "a", listed - 1))
+                .build());
+
+        Assert.assertEquals(Collections.singletonList("b"), watcher.urls.get().asList());
+        Assert.assertEquals(listed, watcher.revision);
+
+        client.create(PATH + "/c");
+        await(() -> children("b", "c").equals(new HashSet<>(notified.get(PATH))));
+        Assert.assertEquals(children("b", "c"), new HashSet<>(watcher.urls.get().asList()));
+    }
+
+    /**
+     * watch a, then replace it by b while watches are broken and compact past both
+     * changes, the watcher can't resume and lists again.
+     */
+    private JEtcdClient.EtcdWatcher compactBehindWatcher() throws Exception {
+        client.create(PATH + "/a");
+        client.addChildListener(PATH, listener);
+        JEtcdClient.EtcdWatcher watcher = client.getChildListener(PATH, listener);
+        await(() -> server.getWatchCount() == 1);
+        long watched = watcher.revision;
+
+        server.breakWatchStreams(1, TimeUnit.SECONDS);
+        client.create(PATH + "/b");
+        client.delete(PATH + "/a");
+        server.compact(server.getRevision());
+        Assert.assertTrue(watched + 1 < server.getRevision());
+
+        await(() -> Collections.singletonList("b").equals(notified.get(PATH)));
+        return watcher;
+    }
+
+    private static Event event(Event.EventType type, String child, long modRevision) {
+        return Event.newBuilder()
+                .setType(type)
+                .setKv(KeyValue.newBuilder()
+                        .setKey(ByteString.copyFromUtf8(PATH + "/" + child))
+                        .setModRevision(modRevision))
+                .build();
+    }
+
+    private static HashSet<String> children(String... children) {
+        return new HashSet<>(Arrays.asList(children));
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        server = new EtcdStandInServer().start();
+        client = new JEtcdClient(server.toUrl()
+                .addParameter(Constants.SESSION_TIMEOUT_KEY, 15000)
+                .addParameter(Constants.REGISTRY_RETRY_PERIOD_KEY, 100)
+                .addParameter(Constants.ETCD3_WATCH_STREAMS_KEY, 1));
+    }
+
+    @After
+    public void tearDown() {
+        client.close();
+        server.close();
+    }
+}
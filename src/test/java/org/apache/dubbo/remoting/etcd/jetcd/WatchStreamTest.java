@@ -0,0 +1,141 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.dubbo.remoting.etcd.jetcd;
+
+import org.apache.dubbo.remoting.etcd.ChildListener;
+import org.apache.dubbo.remoting.etcd.option.Constants;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+public class WatchStreamTest {
+
+    private static final String SERVICE = "/dubbo/org.apache.dubbo.demo.DemoService";
+
+    EtcdStandInServer server;
+
+    JEtcdClient client;
+
+    /**
+     * path -> the latest children notified.
+     */
+    final Map<String, List<String>> notified = new ConcurrentHashMap<>();
+
+    final ChildListener listener = (path, children) -> notified.put(path, children);
+
+    @Test
+    public void test_watchers_share_one_stream() throws Exception {
+        List<String> paths = Arrays.asList(SERVICE + "/providers", SERVICE + "/consumers", SERVICE + "/routers");
+        for (String path : paths) {
+            client.addChildListener(path, listener);
+        }
+        Assert.assertSame(client.streamOf(paths.get(0)), client.streamOf(paths.get(1)));
+        await(() -> server.getWatchCount() == paths.size());
+
+        for (String path : paths) {
+            client.create(path + "/child");
+        }
+        for (String path : paths) {
+            await(() -> Collections.singletonList("child").equals(notified.get(path)));
+        }
+    }
+
+    @Test
+    public void test_cancel_then_watch_again() throws Exception {
+        String path = SERVICE + "/providers";
+        AtomicInteger removedNotified = new AtomicInteger();
+        ChildListener removed = (parent, children) -> removedNotified.incrementAndGet();
+
+        client.addChildListener(path, removed);
+        client.removeChildListener(path, removed);
+        client.addChildListener(path, listener);
+
+        client.create(path + "/child");
+        await(() -> Collections.singletonList("child").equals(notified.get(path)));
+        await(() -> server.getWatchCount() == 1);
+        Assert.assertEquals(0, removedNotified.get());
+    }
+
+    @Test
+    public void test_watch_again_before_acknowledged() throws Exception {
+        String path = SERVICE + "/providers";
+        client.addChildListener(path, listener);
+        JEtcdClient.EtcdWatcher watcher = client.getChildListener(path, listener);
+
+        watcher.forPath(path);
+        watcher.forPath(path);
+
+        client.create(path + "/child");
+        await(() -> Collections.singletonList("child").equals(notified.get(path)));
+        // the stale creates are cancelled once acknowledged.
+        await(() -> server.getWatchCount() == 1);
+    }
+
+    @Test
+    public void test_broken_stream_watches_all_again() throws Exception {
+        List<String> paths = Arrays.asList(SERVICE + "/providers", SERVICE + "/consumers");
+        for (String path : paths) {
+            client.addChildListener(path, listener);
+        }
+        await(() -> server.getWatchCount() == paths.size());
+
+        server.breakWatchStreams();
+        await(() -> server.getWatchCount() == paths.size());
+
+        for (String path : paths) {
+            client.create(path + "/child");
+        }
+        for (String path : paths) {
+            await(() -> Collections.singletonList("child").equals(notified.get(path)));
+        }
+    }
+
+    static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                Assert.fail("condition not met in time");
+            }
+            Thread.sleep(20);
+        }
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        server = new EtcdStandInServer().start();
+        client = new JEtcdClient(server.toUrl()
+                .addParameter(Constants.SESSION_TIMEOUT_KEY, 15000)
+                .addParameter(Constants.REGISTRY_RETRY_PERIOD_KEY, 100)
+                .addParameter(Constants.ETCD3_WATCH_STREAMS_KEY, 1));
+    }
+
+    @After
+    public void tearDown() {
+        client.close();
+        server.close();
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.dubbo.remoting.etcd.metrics;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class EtcdMetricsTest {
+
+    @Test
+    public void test_gauges_of_same_name_are_summed() {
+        EtcdMetrics metrics = new EtcdMetrics();
+        Gauge one = () -> 1;
+        Gauge two = () -> 2;
+        metrics.register("test.gauge", one);
+        metrics.register("test.gauge", two);
+        Assert.assertEquals(3L, (long) metrics.getGauges().get("test.gauge"));
+
+        metrics.unregister("test.gauge", two);
+        Assert.assertEquals(1L, (long) metrics.getGauges().get("test.gauge"));
+    }
+
+    @Test
+    public void test_operation_recorded_and_listened() {
+        EtcdMetrics metrics = new EtcdMetrics();
+        List<String> listened = new ArrayList<>();
+        metrics.addListener((operation, path, size, revision, duration, error) ->
+                listened.add(operation + " " + path + " " + size + " " + revision + " " + (error != null)));
+
+        Operation operation = metrics.operation("test.op");
+        Assert.assertSame(operation, metrics.operation("test.op"));
+        operation.record("/dubbo/a", 2, 10, System.nanoTime());
+        operation.fail("/dubbo/b", System.nanoTime(), new IllegalStateException());
+
+        Assert.assertEquals(2, metrics.getHistograms().get("test.op").getCount());
+        Assert.assertEquals(1L, (long) metrics.getCounters().get("test.op.failures"));
+        Assert.assertEquals("test.op /dubbo/a 2 10 false", listened.get(0));
+        Assert.assertEquals("test.op /dubbo/b 0 0 true", listened.get(1));
+    }
+
+    @Test
+    public void test_failing_listener_is_isolated() {
+        EtcdMetrics metrics = new EtcdMetrics();
+        metrics.addListener((operation, path, size, revision, duration, error) -> {
+            throw new IllegalStateException("broken listener");
+        });
+        metrics.operation("test.op").record(null, 0, 0, System.nanoTime());
+        Assert.assertEquals(1, metrics.getHistograms().get("test.op").getCount());
+    }
+
+    @Test
+    public void test_unlinkable_listener_is_removed() {
+        EtcdMetrics metrics = new EtcdMetrics();
+        int[] calls = new int[1];
+        metrics.addListener((operation, path, size, revision, duration, error) -> {
+            calls[0]++;
+            throw new NoClassDefFoundError("jdk/jfr/Event");
+        });
+        Operation operation = metrics.operation("test.op");
+        operation.record(null, 0, 0, System.nanoTime());
+        operation.record(null, 0, 0, System.nanoTime());
+
+        Assert.assertEquals(1, calls[0]);
+        Assert.assertEquals(0, metrics.getListeners().length);
+        Assert.assertEquals(2, metrics.getHistograms().get("test.op").getCount());
+    }
+
+    @Test
+    public void test_instance_records() {
+        EtcdMetrics.getInstance().operation("etcd3.instance.test").record("/dubbo", 1, 1, System.nanoTime());
+        Assert.assertEquals(1, EtcdMetrics.getInstance().getHistograms().get("etcd3.instance.test").getCount());
+    }
+
+    @Test
+    public void test_telnet() {
+        EtcdMetrics.getInstance().counter("etcd3.test.telnet").increment();
+        String result = new EtcdMetricsTelnetHandler().telnet(null, "etcd3.test");
+        Assert.assertEquals("etcd3.test.telnet = 1", result);
+        Assert.assertEquals("No etcd metrics starting with none.", new EtcdMetricsTelnetHandler().telnet(null, "none"));
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.dubbo.remoting.etcd.metrics;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class HistogramTest {
+
+    @Test
+    public void test_buckets_are_contiguous() {
+        for (long value = 0; value < 1 << 20; value++) {
+            int index = Histogram.index(value);
+            Assert.assertTrue(value <= Histogram.upperBound(index));
+            Assert.assertTrue(index == 0 || value > Histogram.upperBound(index - 1));
+        }
+        Assert.assertTrue(Histogram.upperBound(Histogram.index(Long.MAX_VALUE)) >= 0);
+    }
+
+    @Test
+    public void test_percentiles() {
+        Histogram histogram = new Histogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000L);
+        }
+        Histogram.Snapshot snapshot = histogram.snapshot();
+
+        Assert.assertEquals(1000, snapshot.getCount());
+        Assert.assertEquals(1000_000L, snapshot.getMax());
+        Assert.assertEquals(500_500d, snapshot.getMean(), 0.001);
+        assertWithin(500_000, snapshot.getPercentile(0.5));
+        assertWithin(990_000, snapshot.getPercentile(0.99));
+        Assert.assertEquals(1000_000L, snapshot.getPercentile(1));
+    }
+
+    @Test
+    public void test_empty() {
+        Histogram.Snapshot snapshot = new Histogram().snapshot();
+        Assert.assertEquals(0, snapshot.getCount());
+        Assert.assertEquals(0, snapshot.getPercentile(0.99));
+        Assert.assertEquals(0d, snapshot.getMean(), 0);
+    }
+
+    private static void assertWithin(long expected, long actual) {
+        Assert.assertTrue("expected about " + expected + " but was " + actual,
+                actual >= expected && actual <= expected * 1.07);
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.dubbo.remoting.etcd.metrics;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+
+public class JfrOperationListenerTest {
+
+    @Test
+    public void test_events_recorded() throws Exception {
+        JfrOperationListener listener = new JfrOperationListener();
+        Path file = Files.createTempFile("etcd3-jfr", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable(EtcdOperationEvent.NAME);
+            recording.start();
+            listener.onOperation("etcd3.kv.range", "/dubbo/a/providers", 3, 42, 1500, null);
+            listener.onOperation("etcd3.kv.put", "/dubbo/a/providers/b", 0, 0, 10, new IllegalStateException("lost"));
+            recording.stop();
+            recording.dump(file);
+
+            List<RecordedEvent> events = RecordingFile.readAllEvents(file).stream()
+                    .filter(e -> EtcdOperationEvent.NAME.equals(e.getEventType().getName()))
+                    .collect(Collectors.toList());
+
+            Assert.assertEquals(2, events.size());
+            RecordedEvent range = events.get(0);
+            Assert.assertEquals("etcd3.kv.range", range.getString("operation"));
+            Assert.assertEquals("/dubbo/a/providers", range.getString("path"));
+            Assert.assertEquals(3, range.getInt("size"));
+            Assert.assertEquals(42, range.getLong("revision"));
+            Assert.assertEquals(1500, range.getDuration("latency").toNanos());
+            Assert.assertNull(range.getString("error"));
+            Assert.assertEquals("java.lang.IllegalStateException: lost", events.get(1).getString("error"));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void test_disabled_event_not_recorded() throws Exception {
+        Path file = Files.createTempFile("etcd3-jfr", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.disable(EtcdOperationEvent.NAME);
+            recording.start();
+            new JfrOperationListener().onOperation("etcd3.kv.range", "/dubbo", 0, 0, 1, null);
+            recording.stop();
+            recording.dump(file);
+
+            Assert.assertFalse(RecordingFile.readAllEvents(file).stream()
+                    .anyMatch(e -> EtcdOperationEvent.NAME.equals(e.getEventType().getName())));
+        } finally {
+            Files.delete(file);
+        }
+    }
+}